@@ -3,11 +3,17 @@ package cn.softeng;
 import cn.softeng.basicsim.ClearStatisticsTarget;
 import cn.softeng.basicsim.Entity;
 import cn.softeng.basicsim.InitModelTarget;
+import cn.softeng.distributions.RandomStream;
 import cn.softeng.events.EventManager;
 import cn.softeng.events.ProcessTarget;
 import cn.softeng.processflow.*;
+import cn.softeng.processflow.Queue;
+import cn.softeng.statistics.StatisticsStore;
+import cn.softeng.statistics.StatisticsWriter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.security.InvalidParameterException;
 import java.util.*;
 
@@ -22,6 +28,11 @@ public class DesSim {
      */
     private static EventManager eventManager = new EventManager("DesSim");
 
+    /**
+     * 调用 startExport 之前是否在内存中保留统计数据
+     */
+    private static boolean retainDataBeforeExport = true;
+
     /**
      * 选择的仿真模式
      */
@@ -92,12 +103,9 @@ public class DesSim {
             target = null;
         }
         firstInject = false;
-        for (Entity entity : Entity.getAll()) {
-            if (entity.getClass() == EntityLauncher.class) {
-                EntityLauncher launcher = (EntityLauncher) entity;
-                launcher.scheduleAction(eventManager, scheduleTime, num, target);
-                break;
-            }
+        for (EntityLauncher launcher : Entity.getInstanceIterator(EntityLauncher.class)) {
+            launcher.scheduleAction(eventManager, scheduleTime, num, target);
+            break;
         }
     }
 
@@ -113,11 +121,11 @@ public class DesSim {
     }
 
     /**
-     * 获取模型的时钟序列
+     * 获取模型的时钟序列（只读视图，不复制数据）
      * @return
      */
     public static List<Double> getTimePointList() {
-        return new ArrayList<>(eventManager.getTimePointSet());
+        return eventManager.getStatisticsStore().getTimeList();
     }
 
     /**
@@ -192,23 +200,118 @@ public class DesSim {
     }
 
     /**
-     * 选定指定组件，指定属性到目前为止的所有数据
+     * 选定指定组件，指定属性到目前为止的所有数据（只读视图，与 getTimePointList() 一一对应）
      * @param identifier
      * @param attr
      * @return
      */
     public static List<Long> getDataList(String identifier, String attr) {
         LinkedComponent linkedComponent =  getEntity(identifier);
-        if (attr.equals(NumberAdded)) {
-            return linkedComponent.getNumAddList();
-        } else if (attr.equals(NumberInProgress)) {
-            return linkedComponent.getNumInProgressList();
-        } else if (attr.equals(NumberProcessed)) {
-            return linkedComponent.getNumProcessedList();
+        if (attr.equals(NumberAdded) || attr.equals(NumberInProgress) || attr.equals(NumberProcessed)) {
+            return linkedComponent.getDataList(attr);
         }
         throw new InvalidParameterException("attr 不存在");
     }
 
+    /**
+     * 选定指定组件，指定属性各数据对应的时间（只读视图）
+     * 默认采样策略下与 getTimePointList() 相同，其他采样策略下每个属性有自己的时间序列
+     * @param identifier
+     * @param attr
+     * @return
+     */
+    public static List<Double> getTimeList(String identifier, String attr) {
+        LinkedComponent linkedComponent =  getEntity(identifier);
+        if (attr.equals(NumberAdded) || attr.equals(NumberInProgress) || attr.equals(NumberProcessed)) {
+            return linkedComponent.getTimeList(attr);
+        }
+        throw new InvalidParameterException("attr 不存在");
+    }
+
+    /**
+     * 设置模型的随机数种子，各组件的随机数流由它导出，应在 initModel 之前调用
+     * @param seed
+     */
+    public static void setSeed(long seed) {
+        RandomStream.setModelSeed(seed);
+    }
+
+    /**
+     * 获取指定组件截至当前仿真时刻的利用率，即工作状态时间占统计时间的比例
+     * 多通道服务（MultiServer）返回各服务台的平均利用率
+     * @param identifier
+     * @return
+     */
+    public static double getUtilisation(String identifier) {
+        return getEntity(identifier).getAverageUtilisation(eventManager.getTicks());
+    }
+
+    /**
+     * 获取指定队列截至当前仿真时刻的平均队列长度（按时间加权）
+     * @param identifier 队列组件的标识符
+     * @return
+     */
+    public static double getAverageQueueLength(String identifier) {
+        return getQueue(identifier).getAverageQueueLength(eventManager.getCurrentTime());
+    }
+
+    /**
+     * 获取已离开指定队列的实体的平均等待时间
+     * @param identifier 队列组件的标识符
+     * @return
+     */
+    public static double getAverageQueueTime(String identifier) {
+        return getQueue(identifier).getQueueTimes().getMean() * eventManager.ticksToSeconds(1);
+    }
+
+    /**
+     * 获取已离开指定队列的实体等待时间的分位数估计值，相对误差不超过 1/32
+     * @param identifier 队列组件的标识符
+     * @param percentile 百分位，范围 [0, 100]
+     * @return
+     */
+    public static double getQueueTimePercentile(String identifier, double percentile) {
+        return eventManager.ticksToSeconds(getQueue(identifier).getQueueTimes().getPercentile(percentile));
+    }
+
+    private static Queue getQueue(String identifier) {
+        LinkedComponent linkedComponent = getEntity(identifier);
+        if (!(linkedComponent instanceof Queue)) {
+            throw new InvalidParameterException(identifier + " 不是队列组件");
+        }
+        return (Queue) linkedComponent;
+    }
+
+    /**
+     * 仿真运行期间将统计数据以 CSV 格式（time,series,value）流式写出到指定文件，应在 initModel 之前调用
+     * @param path 文件路径，已存在时覆盖
+     * @param retainData 是否同时在内存中保留统计数据；为false时 getDataList 等接口不再返回数据，内存占用不随仿真时长增长
+     * @throws IOException 文件无法打开时抛出
+     */
+    public static void startExport(String path, boolean retainData) throws IOException {
+        stopExport();
+        StatisticsStore store = eventManager.getStatisticsStore();
+        retainDataBeforeExport = store.isRetainData();
+        store.setWriter(new StatisticsWriter(Paths.get(path)));
+        store.setRetainData(retainData);
+    }
+
+    /**
+     * 停止写出统计数据，写出剩余数据并关闭文件，之后恢复调用 startExport 之前是否在内存中保留统计数据的设置
+     * 运行期间停止写出且写出时不保留数据时，内存中的统计数据从停止后的第一个时间点开始，
+     * 写出期间的时间点只在文件中
+     */
+    public static void stopExport() {
+        StatisticsStore store = eventManager.getStatisticsStore();
+        StatisticsWriter writer = store.getWriter();
+        if (writer == null) {
+            return;
+        }
+        store.setWriter(null);
+        store.setRetainData(retainDataBeforeExport);
+        writer.close();
+    }
+
     /**
      * DES运行类型枚举类
      */
@@ -4,6 +4,7 @@ import cn.softeng.events.EventHandle;
 import cn.softeng.events.EventManager;
 import cn.softeng.events.ProcessTarget;
 
+import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -20,25 +21,58 @@ public class Entity {
     private static AtomicLong entityCount = new AtomicLong(0);
 
     /**
-     * 所有已创建实体的集合
+     * 所有已创建实体的登记表
      */
-    private static final ArrayList<Entity> allInstances;
+    private static final EntityRegistry allInstances;
 
     /**
      * 所有命名实体的集合，每一个实体都有一个唯一的名字
      */
     private static final HashMap<String, Entity> namedEntities;
 
+    /**
+     * 各实体类型的 (boolean generated) 构造器
+     */
+    private static final ClassValue<Constructor<? extends Entity>> GENERATED_CONSTRUCTORS = new ClassValue<Constructor<? extends Entity>>() {
+        @Override
+        protected Constructor<? extends Entity> computeValue(Class<?> type) {
+            try {
+                Constructor<? extends Entity> ret = type.asSubclass(Entity.class).getDeclaredConstructor(boolean.class);
+                ret.setAccessible(true);
+                return ret;
+            } catch (NoSuchMethodException e) {
+                throw new ErrorException("%s must declare a constructor %s(boolean generated) to be used as a prototype",
+                        type.getName(), type.getSimpleName());
+            }
+        }
+    };
+
+    /**
+     * 统计数据发生变化，等待 EventManager 在时钟推进前更新的实体
+     */
+    private static final ArrayList<Entity> dirtyStatistics;
+
     /**
      * 实体名称
      */
     private String entityName;
 
+    /**
+     * 生成实体的名称前缀和序号，名称在第一次调用 getName() 时才拼接
+     */
+    private String namePrefix;
+    private long nameNumber;
+
     /**
      * 实体唯一id
      */
     private final long entityNumber;
 
+    /**
+     * 实体在 allInstances 登记表中的槽位，未登记或已删除时为-1
+     */
+    int registryIndex;
+
     /**
      * 用于表示实体当前状态，实体同一时间可能有多个状态，所以用位运算来表示
      */
@@ -49,26 +83,47 @@ public class Entity {
     static final int FLAG_DEAD = 0x0100;  // entity has been deleted
     static final int FLAG_REGISTERED = 0x0200;  // entity is included in the namedEntities HashMap
     static final int FLAG_RETAINED = 0x0400;  // entity is retained when the model is reset between runs
+    static final int FLAG_STATS_DIRTY = 0x0800;  // entity is waiting in the dirtyStatistics list
 
     static {
-        allInstances = new ArrayList<>(100);
+        allInstances = new EntityRegistry(100);
         namedEntities = new HashMap<>(100);
+        dirtyStatistics = new ArrayList<>(100);
     }
 
     /**
      * Paul：构造器
      */
     public Entity() {
-        // 设置实体的唯一ID
-        entityNumber = entityCount.incrementAndGet();
-        // 将实体加入到所有实体集合
+        // 设置实体的唯一ID，并将实体加入到所有实体集合
+        // 两者在同一个锁内完成，保证登记表按 entityNumber 递增的顺序排列
         synchronized (allInstances) {
+            entityNumber = entityCount.incrementAndGet();
             allInstances.add(this);
         }
         // 初始化实体状态为空
         flags = 0;
     }
 
+    /**
+     * 创建仿真运行期间生成的临时实体
+     * 临时实体不加入 allInstances 和 namedEntities，创建和删除时都不需要加锁
+     * @param generated 为true时创建临时实体，为false时与无参构造器相同
+     */
+    protected Entity(boolean generated) {
+        if (!generated) {
+            synchronized (allInstances) {
+                entityNumber = entityCount.incrementAndGet();
+                allInstances.add(this);
+            }
+            flags = 0;
+            return;
+        }
+        entityNumber = entityCount.incrementAndGet();
+        registryIndex = -1;
+        flags = FLAG_GENERATED;
+    }
+
     /**
      * 模型运行前初始化实体
      * 该方法中操作只能依赖于自身，这样才可以在任何序列中初始化每个实体
@@ -128,6 +183,9 @@ public class Entity {
      * @return
      */
     public final String getName() {
+        if (entityName == null && namePrefix != null) {
+            entityName = namePrefix + "_" + nameNumber;
+        }
         return entityName;
     }
 
@@ -146,20 +204,30 @@ public class Entity {
     }
 
     /**
-     * 返回所有创建过个的实体
+     * 返回所有存活实体的副本，按创建顺序排列
+     * 只需遍历时应使用 getInstanceIterator() 或 getClonesOfIterable()，避免复制
      * @return
      */
     public static ArrayList<? extends Entity> getAll() {
         synchronized (allInstances) {
-            return allInstances;
+            return allInstances.snapshot();
         }
     }
 
+    /**
+     * 返回所有实体的登记表，供 EntityIterator 遍历
+     * @return
+     */
+    static EntityRegistry getRegistry() {
+        return allInstances;
+    }
+
     public void kill() {
-        synchronized (allInstances) {
-            allInstances.remove(this);
-        }
+        // 临时实体没有登记，不需要访问共享的集合
         if (!testFlag(FLAG_GENERATED)) {
+            synchronized (allInstances) {
+                allInstances.remove(this);
+            }
             synchronized (namedEntities) {
                 if (namedEntities.get(entityName) == this) {
                     namedEntities.remove(entityName);
@@ -175,6 +243,49 @@ public class Entity {
         return ret;
     }
 
+    /**
+     * 以指定实体为原型创建一个临时实体，名称为 "前缀_序号"，在第一次使用时才生成
+     * @param entity 原型实体
+     * @param prefix 名称前缀，通常为生成该实体的组件名称
+     * @param number 名称序号
+     * @return 与原型类型相同的实体
+     */
+    public static Entity generateCopy(Entity entity, String prefix, long number) {
+        Entity ret = entity.newGeneratedInstance();
+        ret.namePrefix = prefix;
+        ret.nameNumber = number;
+        return ret;
+    }
+
+    /**
+     * 重新使用一个已被删除的临时实体，清除删除标记并设置新的名称，用于实体池
+     * @param prefix 名称前缀
+     * @param number 名称序号
+     */
+    public final void renewGenerated(String prefix, long number) {
+        if (!testFlag(FLAG_GENERATED) || !testFlag(FLAG_DEAD)) {
+            error("Only a killed generated entity can be reused");
+        }
+        clearFlag(FLAG_DEAD);
+        entityName = null;
+        namePrefix = prefix;
+        nameNumber = number;
+    }
+
+    /**
+     * 创建一个与该实体类型相同的临时实体，不访问全局集合，也不加锁
+     * 默认调用该类型声明的 (boolean generated) 构造器，构造器在每个类型第一次使用时查找并缓存；
+     * 子类可以重写该方法，直接调用该构造器以避免反射
+     * @return
+     */
+    protected Entity newGeneratedInstance() {
+        try {
+            return GENERATED_CONSTRUCTORS.get(getClass()).newInstance(Boolean.TRUE);
+        } catch (ReflectiveOperationException e) {
+            throw new ErrorException(e);
+        }
+    }
+
     private static <T extends Entity> T generateEntityWithName(Class<T> proto, String name) {
         T ent = null;
         try {
@@ -190,11 +301,28 @@ public class Entity {
         return ent;
     }
 
+    /**
+     * 实体是否已被删除（或已归还到实体池中）
+     * @return
+     */
+    public final boolean isDead() {
+        return testFlag(FLAG_DEAD);
+    }
+
+    /**
+     * 实体是否是仿真运行期间生成的临时实体
+     * @return
+     */
+    public final boolean isGenerated() {
+        return testFlag(FLAG_GENERATED);
+    }
+
     public long getEntityNumber() {
         return entityNumber;
     }
 
     public void setName(String newName) {
+        namePrefix = null;
         if (testFlag(FLAG_GENERATED)) {
             entityName = newName;
             return;
@@ -297,12 +425,43 @@ public class Entity {
      */
     public void updateStatistics() {}
 
+    /**
+     * 标记该实体的统计数据已发生变化，下一次时钟推进前会调用其 updateStatistics()
+     * 统计数据未变化的实体不会被访问，时钟推进的开销只与发生变化的实体数有关
+     */
+    public final void markStatisticsDirty() {
+        if (testFlag(FLAG_STATS_DIRTY)) {
+            return;
+        }
+        setFlag(FLAG_STATS_DIRTY);
+        synchronized (dirtyStatistics) {
+            dirtyStatistics.add(this);
+        }
+    }
+
+    /**
+     * 更新所有被标记实体的统计数据，并清除标记，由 EventManager 在时钟推进前调用
+     */
+    public static void updateDirtyStatistics() {
+        synchronized (dirtyStatistics) {
+            for (int i = 0; i < dirtyStatistics.size(); i++) {
+                Entity ent = dirtyStatistics.get(i);
+                ent.clearFlag(FLAG_STATS_DIRTY);
+                if (!ent.testFlag(FLAG_DEAD)) {
+                    ent.updateStatistics();
+                }
+            }
+            dirtyStatistics.clear();
+        }
+    }
+
     /**
      * ！慎用，用于DesSim.initModel 重置实体集合，避免用户不合法输入
      */
     public static void resetAllInstance(List<Entity> entities) {
-        allInstances.clear();
-        allInstances.addAll(entities);
+        synchronized (allInstances) {
+            allInstances.reset(entities);
+        }
     }
 
     /**
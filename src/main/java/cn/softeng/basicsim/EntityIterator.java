@@ -10,26 +10,31 @@ import java.util.NoSuchElementException;
  */
 public abstract class EntityIterator<T extends Entity> implements Iterable<T>, Iterator<T> {
     /**
-     * Entity的所有实例，即将被遍历的实例集合
+     * 所有实体的登记表，即将被遍历的实例集合
      */
-    private final ArrayList<? extends Entity> allInstances = Entity.getAll();
+    private final EntityRegistry allInstances = Entity.getRegistry();
     /**
      * 用于指定需要遍历目标实体的类型
      */
     protected final Class<T> entityClass;
     /**
-     * 游标当前位置指针
+     * 每个匹配的桶各有一个游标，按 entityNumber 归并，保证按创建顺序遍历
      */
-    private int curPos;
+    private final ArrayList<Cursor> cursors;
     /**
-     * 游标下一个遍历位置的指针
+     * 上一次获取游标时登记表的版本，出现新的具体类型时需要补充游标
      */
-    private int nextPos;
+    private int version;
+    /**
+     * 下一个要返回的实体所在的游标，为null时需要重新查找
+     */
+    private Cursor nextCursor;
 
     public EntityIterator(Class<T> tClass) {
         entityClass = tClass;
-        curPos = -1;
-        nextPos = -1;
+        cursors = new ArrayList<>();
+        version = -1;
+        nextCursor = null;
     }
 
     /**
@@ -40,19 +45,49 @@ public abstract class EntityIterator<T extends Entity> implements Iterable<T>, I
     abstract boolean matches(Class<?> tClass);
 
     /**
-     * 更新游标下一个要遍历的位置
+     * 为每个类型匹配的桶创建游标，遍历期间出现新的具体类型时只补充新桶的游标
      */
-    private void updatePos() {
-        // 若 nextPos 已到达边界则return
-        if (nextPos >= allInstances.size()) {
-            return;
+    private void updateCursors() {
+        synchronized (allInstances) {
+            if (version == allInstances.getVersion()) {
+                return;
+            }
+            version = allInstances.getVersion();
+            for (EntityRegistry.Bucket bucket : allInstances.getView(entityClass)) {
+                if (!matches(bucket.type)) {
+                    continue;
+                }
+                boolean found = false;
+                for (Cursor each : cursors) {
+                    if (each.bucket == bucket) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    cursors.add(new Cursor(bucket));
+                }
+            }
         }
-        // 向后移动 nextPos 直到遇到类型匹配的实体
-        while (++nextPos < allInstances.size()) {
-            if (matches(allInstances.get(nextPos).getClass())) {
-                break;
+    }
+
+    /**
+     * 在所有游标中查找 entityNumber 最小的下一个实体
+     */
+    private void updatePos() {
+        updateCursors();
+        Cursor best = null;
+        for (int i = 0; i < cursors.size(); i++) {
+            Cursor each = cursors.get(i);
+            Entity head = each.peek();
+            if (head == null) {
+                continue;
+            }
+            if (best == null || head.getEntityNumber() < best.head.getEntityNumber()) {
+                best = each;
             }
         }
+        nextCursor = best;
     }
 
     /**
@@ -66,21 +101,22 @@ public abstract class EntityIterator<T extends Entity> implements Iterable<T>, I
 
     @Override
     public boolean hasNext() {
-        if (curPos == nextPos) {
+        if (nextCursor == null) {
             updatePos();
         }
-        return nextPos < allInstances.size();
+        return nextCursor != null;
     }
 
     @Override
     public T next() {
-        if (curPos == nextPos) {
+        if (nextCursor == null) {
             updatePos();
         }
 
-        if (nextPos < allInstances.size()) {
-            curPos = nextPos;
-            return entityClass.cast(allInstances.get(curPos));
+        if (nextCursor != null) {
+            Entity ret = nextCursor.take();
+            nextCursor = null;
+            return entityClass.cast(ret);
         } else {
             throw new NoSuchElementException();
         }
@@ -90,4 +126,64 @@ public abstract class EntityIterator<T extends Entity> implements Iterable<T>, I
     public void remove() {
         throw new UnsupportedOperationException();
     }
+
+    /**
+     * 单个桶上的游标
+     */
+    private static final class Cursor {
+        final EntityRegistry.Bucket bucket;
+        /**
+         * 下一个查找位置的指针
+         */
+        int nextPos;
+        /**
+         * 已查找到但尚未返回的实体
+         */
+        Entity head;
+        /**
+         * 最近一次查找到的实体的 entityNumber，桶被压缩后据此重新定位
+         */
+        long lastNumber;
+        /**
+         * 上一次查找时桶的压缩次数
+         */
+        int compactions;
+
+        Cursor(EntityRegistry.Bucket bucket) {
+            this.bucket = bucket;
+            compactions = bucket.getCompactions();
+        }
+
+        /**
+         * 返回桶中下一个存活的实体，跳过已删除实体留下的空槽
+         * @return 没有更多实体时返回null
+         */
+        Entity peek() {
+            // 已查找到的实体在等待期间被删除时，继续向后查找
+            if (head != null && head.registryIndex >= 0) {
+                return head;
+            }
+            head = null;
+            // 遍历期间桶被压缩时，根据上一个实体的 entityNumber 重新定位
+            if (compactions != bucket.getCompactions()) {
+                compactions = bucket.getCompactions();
+                nextPos = bucket.indexAfter(lastNumber);
+            }
+            while (nextPos < bucket.size()) {
+                Entity ent = bucket.get(nextPos++);
+                if (ent != null) {
+                    head = ent;
+                    lastNumber = ent.getEntityNumber();
+                    break;
+                }
+            }
+            return head;
+        }
+
+        Entity take() {
+            Entity ret = head;
+            head = null;
+            return ret;
+        }
+    }
 }
@@ -0,0 +1,288 @@
+package cn.softeng.basicsim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * 所有已创建实体的登记表，每个具体类型的实体保存在各自的桶中
+ * 遍历某一类型的实体时只需访问与其匹配的桶，开销与匹配的实体数成正比，与其他类型的实体数无关
+ * 每个类型对应的桶列表（即该类型及其所有子类型的桶）会被缓存，只有出现新的具体类型时才重新计算
+ * @date: 10/18/2026 4:20 PM
+ */
+final class EntityRegistry {
+    /**
+     * 具体类型到桶的映射
+     */
+    private final HashMap<Class<?>, Bucket> buckets;
+
+    /**
+     * 所有的桶，按创建顺序排列
+     */
+    private final ArrayList<Bucket> bucketList;
+
+    /**
+     * 缓存的类型视图：某一类型到其自身及所有子类型的桶的映射
+     */
+    private final HashMap<Class<?>, Bucket[]> views;
+
+    /**
+     * 桶的个数，迭代器据此判断是否出现了新的具体类型
+     */
+    private int version;
+
+    /**
+     * 每个新桶的初始容量
+     */
+    private final int initialCapacity;
+
+    EntityRegistry(int initialCapacity) {
+        this.initialCapacity = initialCapacity;
+        buckets = new HashMap<>();
+        bucketList = new ArrayList<>();
+        views = new HashMap<>();
+    }
+
+    /**
+     * 将实体添加到其具体类型的桶中
+     * @param ent
+     */
+    void add(Entity ent) {
+        Bucket bucket = buckets.get(ent.getClass());
+        if (bucket == null) {
+            bucket = new Bucket(ent.getClass(), initialCapacity);
+            buckets.put(ent.getClass(), bucket);
+            bucketList.add(bucket);
+            views.clear();
+            version++;
+        }
+        bucket.add(ent);
+    }
+
+    /**
+     * 从其具体类型的桶中删除实体
+     * @param ent
+     */
+    void remove(Entity ent) {
+        Bucket bucket = buckets.get(ent.getClass());
+        if (bucket != null) {
+            bucket.remove(ent);
+        }
+    }
+
+    /**
+     * 清空后按 entityNumber 的顺序重新登记指定实体
+     * @param entities
+     */
+    void reset(List<? extends Entity> entities) {
+        for (Bucket each : bucketList) {
+            each.clear();
+        }
+        Entity[] sorted = entities.toArray(new Entity[0]);
+        Arrays.sort(sorted, Comparator.comparingLong(Entity::getEntityNumber));
+        for (Entity each : sorted) {
+            add(each);
+        }
+    }
+
+    /**
+     * 返回指定类型及其所有子类型的桶
+     * @param type
+     * @return
+     */
+    Bucket[] getView(Class<?> type) {
+        Bucket[] ret = views.get(type);
+        if (ret != null) {
+            return ret;
+        }
+        ArrayList<Bucket> list = new ArrayList<>();
+        for (Bucket each : bucketList) {
+            if (type.isAssignableFrom(each.type)) {
+                list.add(each);
+            }
+        }
+        ret = list.toArray(new Bucket[0]);
+        views.put(type, ret);
+        return ret;
+    }
+
+    int getVersion() {
+        return version;
+    }
+
+    /**
+     * 所有桶的压缩次数之和
+     * @return
+     */
+    int getCompactions() {
+        int ret = 0;
+        for (Bucket each : bucketList) {
+            ret += each.compactions;
+        }
+        return ret;
+    }
+
+    /**
+     * 返回所有存活实体的副本，按创建顺序排列
+     * @return
+     */
+    ArrayList<Entity> snapshot() {
+        ArrayList<Entity> ret = new ArrayList<>();
+        for (Entity each : new ClonesOfIterable<>(Entity.class)) {
+            ret.add(each);
+        }
+        return ret;
+    }
+
+    /**
+     * 某一具体类型的实体，按创建顺序（即 entityNumber 递增的顺序）保存
+     * 删除实体时只把其所在的槽位置空，由之后的添加操作在空槽过多时统一压缩，
+     * 因此添加、删除都是均摊 O(1)，遍历时跳过空槽即可
+     * 压缩不改变实体的相对顺序，迭代器可以根据 entityNumber 重新定位
+     */
+    static final class Bucket {
+        /**
+         * 桶中实体的具体类型
+         */
+        final Class<?> type;
+
+        /**
+         * 按创建顺序保存实体的槽位，已删除的实体对应的槽位为null
+         */
+        private Entity[] slots;
+
+        /**
+         * 已使用的槽位数（包括空槽）
+         */
+        private int size;
+
+        /**
+         * 仍然存活的实体数
+         */
+        private int liveCount;
+
+        /**
+         * 压缩的次数，槽位下标在压缩后失效，迭代器据此判断是否需要重新定位
+         */
+        private int compactions;
+
+        Bucket(Class<?> type, int initialCapacity) {
+            this.type = type;
+            slots = new Entity[initialCapacity];
+        }
+
+        /**
+         * 在末尾添加实体，并记录实体所在的槽位
+         * @param ent
+         */
+        void add(Entity ent) {
+            if (size == slots.length) {
+                // 空槽超过一半时压缩，否则扩容
+                if (liveCount <= size / 2) {
+                    compact();
+                } else {
+                    slots = Arrays.copyOf(slots, size * 2);
+                }
+            }
+            ent.registryIndex = size;
+            slots[size++] = ent;
+            liveCount++;
+        }
+
+        /**
+         * 删除实体，只把其槽位置空
+         * @param ent
+         */
+        void remove(Entity ent) {
+            int index = ent.registryIndex;
+            if (index < 0 || index >= size || slots[index] != ent) {
+                return;
+            }
+            slots[index] = null;
+            ent.registryIndex = -1;
+            liveCount--;
+        }
+
+        /**
+         * 删除桶中所有实体
+         */
+        void clear() {
+            for (int i = 0; i < size; i++) {
+                if (slots[i] != null) {
+                    slots[i].registryIndex = -1;
+                    slots[i] = null;
+                }
+            }
+            size = 0;
+            liveCount = 0;
+            compactions++;
+        }
+
+        /**
+         * 去掉所有空槽，保持实体的相对顺序
+         */
+        private void compact() {
+            int n = 0;
+            for (int i = 0; i < size; i++) {
+                Entity ent = slots[i];
+                if (ent == null) {
+                    continue;
+                }
+                ent.registryIndex = n;
+                slots[n++] = ent;
+            }
+            Arrays.fill(slots, n, size, null);
+            size = n;
+            compactions++;
+        }
+
+        /**
+         * 已使用的槽位数（包括空槽），遍历时的上界
+         * @return
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * 返回指定槽位的实体，该实体已被删除时返回null
+         * @param index
+         * @return
+         */
+        Entity get(int index) {
+            return slots[index];
+        }
+
+        int getCompactions() {
+            return compactions;
+        }
+
+        /**
+         * 返回第一个 entityNumber 大于指定值的槽位，用于迭代器在压缩后重新定位
+         * @param entityNumber
+         * @return
+         */
+        int indexAfter(long entityNumber) {
+            // 槽位按 entityNumber 递增排列，空槽不影响二分查找的方向，只需跳过
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                int probe = mid;
+                while (probe < hi && slots[probe] == null) {
+                    probe++;
+                }
+                if (probe == hi) {
+                    hi = mid;
+                } else if (slots[probe].getEntityNumber() <= entityNumber) {
+                    lo = probe + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package cn.softeng.distributions;
+
+/**
+ * Walker 别名表：按权重抽取下标，建表 O(n)，每次抽样 O(1) 且不分配对象
+ * @date: 10/18/2026 11:10 PM
+ */
+public final class AliasTable {
+    /**
+     * 每一列保留自身下标的概率
+     */
+    private final double[] probability;
+
+    /**
+     * 每一列的别名下标
+     */
+    private final int[] alias;
+
+    /**
+     * @param weights 非负权重，至少有一个为正数
+     */
+    public AliasTable(double[] weights) {
+        int n = weights.length;
+        double sum = 0.0;
+        for (double w : weights) {
+            if (w < 0.0 || Double.isNaN(w)) {
+                throw new IllegalArgumentException("weights must be non-negative: " + w);
+            }
+            sum += w;
+        }
+        if (!(sum > 0.0)) {
+            throw new IllegalArgumentException("at least one weight must be positive");
+        }
+
+        probability = new double[n];
+        alias = new int[n];
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int numSmall = 0;
+        int numLarge = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / sum;
+            if (scaled[i] < 1.0) {
+                small[numSmall++] = i;
+            } else {
+                large[numLarge++] = i;
+            }
+        }
+        while (numSmall > 0 && numLarge > 0) {
+            int s = small[--numSmall];
+            int l = large[--numLarge];
+            probability[s] = scaled[s];
+            alias[s] = l;
+            scaled[l] = (scaled[l] + scaled[s]) - 1.0;
+            if (scaled[l] < 1.0) {
+                small[numSmall++] = l;
+            } else {
+                large[numLarge++] = l;
+            }
+        }
+        // 剩余的列由于舍入误差接近1，直接取自身
+        while (numLarge > 0) {
+            int l = large[--numLarge];
+            probability[l] = 1.0;
+            alias[l] = l;
+        }
+        while (numSmall > 0) {
+            int s = small[--numSmall];
+            probability[s] = 1.0;
+            alias[s] = s;
+        }
+    }
+
+    /**
+     * 按权重抽取一个下标
+     * @param stream
+     * @return
+     */
+    public int sample(RandomStream stream) {
+        int column = stream.nextInt(probability.length);
+        return stream.nextDouble() < probability[column] ? column : alias[column];
+    }
+
+    public int size() {
+        return probability.length;
+    }
+}
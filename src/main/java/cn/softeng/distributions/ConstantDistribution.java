@@ -0,0 +1,23 @@
+package cn.softeng.distributions;
+
+/**
+ * 常数分布，总是返回同一个值，不消耗随机数
+ * @date: 10/18/2026 11:05 PM
+ */
+public final class ConstantDistribution implements Distribution {
+    private final double value;
+
+    public ConstantDistribution(double value) {
+        this.value = value;
+    }
+
+    @Override
+    public double sample(RandomStream stream) {
+        return value;
+    }
+
+    @Override
+    public double getMean() {
+        return value;
+    }
+}
@@ -0,0 +1,21 @@
+package cn.softeng.distributions;
+
+/**
+ * 随机分布，从给定的随机数流中抽样，抽样过程不分配对象
+ * 分布对象本身不保存随机数状态，可以被多个组件共用
+ * @date: 10/18/2026 11:00 PM
+ */
+public interface Distribution {
+    /**
+     * 从分布中抽取一个值
+     * @param stream 调用者的随机数流
+     * @return
+     */
+    double sample(RandomStream stream);
+
+    /**
+     * 返回分布的均值
+     * @return
+     */
+    double getMean();
+}
@@ -0,0 +1,42 @@
+package cn.softeng.distributions;
+
+import java.util.Arrays;
+
+/**
+ * 离散经验分布：按给定的概率取给定的值之一，用别名表抽样
+ * @date: 10/18/2026 11:10 PM
+ */
+public final class EmpiricalDistribution implements Distribution {
+    private final double[] values;
+    private final AliasTable table;
+    private final double mean;
+
+    /**
+     * @param values 可能的取值
+     * @param weights 各个取值的权重，不要求归一化
+     */
+    public EmpiricalDistribution(double[] values, double[] weights) {
+        if (values.length != weights.length || values.length == 0) {
+            throw new IllegalArgumentException("values and weights must have the same non-zero length");
+        }
+        this.values = Arrays.copyOf(values, values.length);
+        this.table = new AliasTable(weights);
+        double sum = 0.0;
+        double weighted = 0.0;
+        for (int i = 0; i < values.length; i++) {
+            sum += weights[i];
+            weighted += weights[i] * values[i];
+        }
+        this.mean = weighted / sum;
+    }
+
+    @Override
+    public double sample(RandomStream stream) {
+        return values[table.sample(stream)];
+    }
+
+    @Override
+    public double getMean() {
+        return mean;
+    }
+}
@@ -0,0 +1,40 @@
+package cn.softeng.distributions;
+
+/**
+ * Erlang 分布，即 k 个均值为 mean/k 的指数分布之和
+ * @date: 10/18/2026 11:05 PM
+ */
+public final class ErlangDistribution implements Distribution {
+    private final double mean;
+    private final int shape;
+
+    /**
+     * @param mean 均值，必须为正数
+     * @param shape 形状参数 k，必须为正整数
+     */
+    public ErlangDistribution(double mean, int shape) {
+        if (!(mean > 0.0)) {
+            throw new IllegalArgumentException("mean must be positive: " + mean);
+        }
+        if (shape < 1) {
+            throw new IllegalArgumentException("shape must be at least 1: " + shape);
+        }
+        this.mean = mean;
+        this.shape = shape;
+    }
+
+    @Override
+    public double sample(RandomStream stream) {
+        // k 个均匀随机数的乘积只取一次对数
+        double product = 1.0;
+        for (int i = 0; i < shape; i++) {
+            product *= stream.nextDoubleNonZero();
+        }
+        return -mean / shape * Math.log(product);
+    }
+
+    @Override
+    public double getMean() {
+        return mean;
+    }
+}
@@ -0,0 +1,29 @@
+package cn.softeng.distributions;
+
+/**
+ * 指数分布
+ * @date: 10/18/2026 11:05 PM
+ */
+public final class ExponentialDistribution implements Distribution {
+    private final double mean;
+
+    /**
+     * @param mean 均值，必须为正数
+     */
+    public ExponentialDistribution(double mean) {
+        if (!(mean > 0.0)) {
+            throw new IllegalArgumentException("mean must be positive: " + mean);
+        }
+        this.mean = mean;
+    }
+
+    @Override
+    public double sample(RandomStream stream) {
+        return -mean * Math.log(stream.nextDoubleNonZero());
+    }
+
+    @Override
+    public double getMean() {
+        return mean;
+    }
+}
@@ -0,0 +1,39 @@
+package cn.softeng.distributions;
+
+/**
+ * 对数正态分布，由分布本身的均值和标准差确定
+ * @date: 10/18/2026 11:05 PM
+ */
+public final class LognormalDistribution implements Distribution {
+    private final double mean;
+
+    /**
+     * 对应正态分布的均值和标准差
+     */
+    private final double mu;
+    private final double sigma;
+
+    /**
+     * @param mean 均值，必须为正数
+     * @param stdDev 标准差，不能为负数
+     */
+    public LognormalDistribution(double mean, double stdDev) {
+        if (!(mean > 0.0) || stdDev < 0.0) {
+            throw new IllegalArgumentException("invalid lognormal parameters: " + mean + ", " + stdDev);
+        }
+        this.mean = mean;
+        double variance = Math.log(1.0 + (stdDev * stdDev) / (mean * mean));
+        this.sigma = Math.sqrt(variance);
+        this.mu = Math.log(mean) - 0.5 * variance;
+    }
+
+    @Override
+    public double sample(RandomStream stream) {
+        return Math.exp(mu + sigma * stream.nextGaussian());
+    }
+
+    @Override
+    public double getMean() {
+        return mean;
+    }
+}
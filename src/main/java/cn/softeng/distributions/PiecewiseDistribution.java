@@ -0,0 +1,65 @@
+package cn.softeng.distributions;
+
+import java.util.Arrays;
+
+/**
+ * 分段线性的连续经验分布：给定若干取值及其累积概率，取值之间的累积分布函数线性插值
+ * 抽样时对累积概率二分查找，O(log n)
+ * @date: 10/18/2026 11:10 PM
+ */
+public final class PiecewiseDistribution implements Distribution {
+    private final double[] values;
+    private final double[] cumulative;
+    private final double mean;
+
+    /**
+     * @param values 递增的取值
+     * @param cumulative 各个取值的累积概率，递增，最后一个必须为1
+     */
+    public PiecewiseDistribution(double[] values, double[] cumulative) {
+        int n = values.length;
+        if (n < 2 || cumulative.length != n) {
+            throw new IllegalArgumentException("at least two points with matching probabilities are required");
+        }
+        for (int i = 1; i < n; i++) {
+            if (values[i] < values[i - 1] || cumulative[i] < cumulative[i - 1]) {
+                throw new IllegalArgumentException("values and probabilities must be non-decreasing");
+            }
+        }
+        if (cumulative[0] < 0.0 || Math.abs(cumulative[n - 1] - 1.0) > 1.0e-9) {
+            throw new IllegalArgumentException("cumulative probabilities must lie in [0, 1] and end at 1");
+        }
+        this.values = Arrays.copyOf(values, n);
+        this.cumulative = Arrays.copyOf(cumulative, n);
+
+        // 第一个点上的概率质量集中在该点，之后每段均匀分布
+        double m = cumulative[0] * values[0];
+        for (int i = 1; i < n; i++) {
+            m += (cumulative[i] - cumulative[i - 1]) * 0.5 * (values[i] + values[i - 1]);
+        }
+        this.mean = m;
+    }
+
+    @Override
+    public double sample(RandomStream stream) {
+        double u = stream.nextDouble();
+        int i = Arrays.binarySearch(cumulative, u);
+        if (i >= 0) {
+            return values[i];
+        }
+        i = -i - 1;
+        if (i == 0) {
+            return values[0];
+        }
+        if (i >= cumulative.length) {
+            return values[values.length - 1];
+        }
+        double frac = (u - cumulative[i - 1]) / (cumulative[i] - cumulative[i - 1]);
+        return values[i - 1] + frac * (values[i] - values[i - 1]);
+    }
+
+    @Override
+    public double getMean() {
+        return mean;
+    }
+}
@@ -0,0 +1,143 @@
+package cn.softeng.distributions;
+
+/**
+ * 可重现的随机数流，使用 xoshiro256** 生成器，状态由 SplitMix64 从模型种子和流编号导出
+ * 每个组件持有自己的随机数流，同一个模型种子下各个组件的随机数序列相互独立且每次运行都相同
+ * 随机数流不是线程安全的，只应在所属组件的仿真线程中使用
+ * @date: 10/18/2026 11:00 PM
+ */
+public final class RandomStream {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    /**
+     * 模型种子，所有组件的随机数流都由它导出
+     */
+    private static volatile long modelSeed = 0L;
+
+    private long s0;
+    private long s1;
+    private long s2;
+    private long s3;
+
+    /**
+     * nextGaussian() 每次生成两个值，第二个值留到下次使用
+     */
+    private double spareGaussian;
+    private boolean hasSpareGaussian;
+
+    /**
+     * @param seed 模型种子
+     * @param streamNumber 流编号，不同编号的流相互独立
+     */
+    public RandomStream(long seed, long streamNumber) {
+        long x = mix64(seed) ^ mix64(streamNumber * GOLDEN_GAMMA + GOLDEN_GAMMA);
+        x += GOLDEN_GAMMA;
+        s0 = mix64(x);
+        x += GOLDEN_GAMMA;
+        s1 = mix64(x);
+        x += GOLDEN_GAMMA;
+        s2 = mix64(x);
+        x += GOLDEN_GAMMA;
+        s3 = mix64(x);
+    }
+
+    public static long getModelSeed() {
+        return modelSeed;
+    }
+
+    /**
+     * 设置模型种子，在之后初始化的组件中生效
+     * @param seed
+     */
+    public static void setModelSeed(long seed) {
+        modelSeed = seed;
+    }
+
+    /**
+     * 由当前流导出一个新的独立的流
+     * @return
+     */
+    public RandomStream split() {
+        return new RandomStream(nextLong(), nextLong());
+    }
+
+    public long nextLong() {
+        long result = Long.rotateLeft(s1 * 5, 7) * 9;
+        long t = s1 << 17;
+        s2 ^= s0;
+        s3 ^= s1;
+        s1 ^= s2;
+        s0 ^= s3;
+        s2 ^= t;
+        s3 = Long.rotateLeft(s3, 45);
+        return result;
+    }
+
+    /**
+     * 返回 [0, 1) 上均匀分布的随机数
+     * @return
+     */
+    public double nextDouble() {
+        return (nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+    /**
+     * 返回 (0, 1] 上均匀分布的随机数，用于需要取对数的场合
+     * @return
+     */
+    public double nextDoubleNonZero() {
+        return ((nextLong() >>> 11) + 1) * DOUBLE_UNIT;
+    }
+
+    /**
+     * 返回 [0, bound) 上均匀分布的整数
+     * @param bound 必须为正数
+     * @return
+     */
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive: " + bound);
+        }
+        // Lemire 的乘法取范围方法，拒绝少量有偏的值
+        long m = (nextLong() >>> 32) * bound;
+        long low = m & 0xffffffffL;
+        if (low < bound) {
+            long threshold = (0x100000000L - bound) % bound;
+            while (low < threshold) {
+                m = (nextLong() >>> 32) * bound;
+                low = m & 0xffffffffL;
+            }
+        }
+        return (int) (m >>> 32);
+    }
+
+    /**
+     * 返回标准正态分布的随机数（Marsaglia 极坐标法）
+     * @return
+     */
+    public double nextGaussian() {
+        if (hasSpareGaussian) {
+            hasSpareGaussian = false;
+            return spareGaussian;
+        }
+        double u;
+        double v;
+        double s;
+        do {
+            u = 2.0 * nextDouble() - 1.0;
+            v = 2.0 * nextDouble() - 1.0;
+            s = u * u + v * v;
+        } while (s >= 1.0 || s == 0.0);
+        double mul = Math.sqrt(-2.0 * Math.log(s) / s);
+        spareGaussian = v * mul;
+        hasSpareGaussian = true;
+        return u * mul;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,40 @@
+package cn.softeng.distributions;
+
+/**
+ * 三角分布，用反函数法抽样
+ * @date: 10/18/2026 11:05 PM
+ */
+public final class TriangularDistribution implements Distribution {
+    private final double min;
+    private final double mode;
+    private final double max;
+
+    /**
+     * 众数左侧部分的概率
+     */
+    private final double modeFraction;
+
+    public TriangularDistribution(double min, double mode, double max) {
+        if (!(min <= mode && mode <= max && min < max)) {
+            throw new IllegalArgumentException("invalid triangular parameters: " + min + ", " + mode + ", " + max);
+        }
+        this.min = min;
+        this.mode = mode;
+        this.max = max;
+        this.modeFraction = (mode - min) / (max - min);
+    }
+
+    @Override
+    public double sample(RandomStream stream) {
+        double u = stream.nextDouble();
+        if (u < modeFraction) {
+            return min + Math.sqrt(u * (max - min) * (mode - min));
+        }
+        return max - Math.sqrt((1.0 - u) * (max - min) * (max - mode));
+    }
+
+    @Override
+    public double getMean() {
+        return (min + mode + max) / 3.0;
+    }
+}
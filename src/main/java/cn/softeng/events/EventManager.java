@@ -1,14 +1,12 @@
 package cn.softeng.events;
 
 import cn.softeng.basicsim.Entity;
+import cn.softeng.statistics.StatisticsStore;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
-import java.util.LinkedHashSet;
-import java.util.List;
-import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -146,10 +144,10 @@ public final class EventManager {
     private EventTraceListener trcListener;
 
     /**
-     * 收集发生的时间点
+     * 收集统计数据的时间点，以及各组件在这些时间点上的统计数据
      */
     @Getter
-    private Set<Double> timePointSet;
+    private final StatisticsStore statisticsStore;
 
 
     public EventManager(String name) {
@@ -168,7 +166,7 @@ public final class EventManager {
 
         eventTree = new EventTree();
         condEvents = new ArrayList<>();
-        timePointSet = new LinkedHashSet<>();
+        statisticsStore = new StatisticsStore();
 
         isRunning = new AtomicBoolean(false);
         executeEvents = false;
@@ -353,6 +351,8 @@ public final class EventManager {
                         // 更新统计数据
                         updateStatitics();
                     }
+                    // 暂停时写出已记录的统计数据，便于外部程序读取
+                    statisticsStore.flush();
                     processRunning = false;
                     isRunning.set(false);
                     timelistener.timeRunning();
@@ -1242,11 +1242,11 @@ public final class EventManager {
     }
 
     /**
-     * 当前事件队列是否为空
+     * 当前事件队列中是否还有非后台事件（见 ProcessTarget.isBackground()）
      * @return
      */
     public boolean hasEvent() {
-        return eventTree.getNextNode() != null;
+        return eventTree.getNextForegroundNode() != null;
     }
 
     /**
@@ -1260,12 +1260,11 @@ public final class EventManager {
 
     /**
      * 更新统计数据，当时间推进&
+     * 只有统计数据发生变化的实体会被更新，未变化的实体沿用上一次的数据
      */
     public void updateStatitics() {
-        for (Entity entity : Entity.getClonesOfIterator(Entity.class)) {
-            entity.updateStatistics();
-        }
-        timePointSet.add(ticksToSeconds(currentTick.get()));
+        statisticsStore.addTimePoint(ticksToSeconds(currentTick.get()));
+        Entity.updateDirtyStatistics();
     }
 
     /**
@@ -1276,15 +1275,19 @@ public final class EventManager {
         for (Entity entity : Entity.getClonesOfIterator(Entity.class)) {
             entity.clearStatistics();
         }
-        timePointSet.clear();
+        statisticsStore.clear();
     }
 
     /**
-     * 获取下一个事件时间对应的秒数
+     * 获取下一个非后台事件时间对应的秒数，没有非后台事件时返回最近一次推进的事件时间
      * @return
      */
     public double getNextEventTime() {
-        return ticksToSeconds(nextTick);
+        EventNode next = eventTree.getNextForegroundNode();
+        if (next == null) {
+            return ticksToSeconds(nextTick);
+        }
+        return ticksToSeconds(next.schedTick);
     }
 
     /**
@@ -33,6 +33,16 @@ class EventNode {
         right = nilNode;
     }
 
+    // 节点中是否有非后台事件，见 ProcessTarget.isBackground()
+    final boolean hasForegroundEvent() {
+        for (Event e = head; e != null; e = e.next) {
+            if (!e.target.isBackground()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     // 添加事件，会根据是否有先入先出要求，在Head或Tail后形成事件链；
     // 具体参考算法图解.drawio
     final void addEvent(Event e, boolean fifo) {
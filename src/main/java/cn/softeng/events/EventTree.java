@@ -71,6 +71,32 @@ class EventTree {
         return lowest;
     }
 
+    /**
+     * 按执行顺序返回第一个包含非后台事件的结点，见 ProcessTarget.isBackground()
+     * @return 只有后台事件或没有事件时返回null
+     */
+    EventNode getNextForegroundNode() {
+        EventNode next = getNextNode();
+        if (next == null || next.hasForegroundEvent()) {
+            return next;
+        }
+        return findForegroundNode(root);
+    }
+
+    private EventNode findForegroundNode(EventNode node) {
+        if (node == EventNode.nilNode) {
+            return null;
+        }
+        EventNode ret = findForegroundNode(node.left);
+        if (ret != null) {
+            return ret;
+        }
+        if (node.hasForegroundEvent()) {
+            return node;
+        }
+        return findForegroundNode(node.right);
+    }
+
     /**
      * 重置红黑树
      */
@@ -29,6 +29,15 @@ public abstract class ProcessTarget {
      */
     public abstract String getDescription();
 
+    /**
+     * 是否是后台事件。后台事件（例如按固定间隔的统计采样）在整个运行期间不断重新调度自身，
+     * hasEvent() 和 getNextEventTime() 不考虑后台事件，外部程序据此判断模型是否已经没有待处理的事件
+     * @return
+     */
+    public boolean isBackground() {
+        return false;
+    }
+
     /**
      * 重写toString方法，方便debug时识别target
      * @return
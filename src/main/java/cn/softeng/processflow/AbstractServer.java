@@ -0,0 +1,79 @@
+package cn.softeng.processflow;
+
+import cn.softeng.basicsim.Entity;
+import cn.softeng.distributions.ConstantDistribution;
+import cn.softeng.distributions.Distribution;
+import lombok.Setter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Server 和 MultiServer 的公共基类，负责按实体类别选择服务时间
+ * @date: 10/19/2026 9:30 AM
+ */
+public abstract class AbstractServer extends LinkedService {
+    /**
+     * 服务时间的分布
+     */
+    private Distribution serviceTime;
+    @Setter
+    private Map<String, Double> serverTimeChoice;
+
+    /**
+     * 按类别指定的服务时间分布
+     */
+    private final Map<String, Distribution> serviceTimeChoice;
+
+    /**
+     * 初始化时由 serverTimeChoice 和 serviceTimeChoice 编译得到的查找表
+     */
+    private final ServiceTimeTable serviceTimeTable;
+
+    {
+        serviceTime = new ConstantDistribution(0);
+        serverTimeChoice = new HashMap<>();
+        serviceTimeChoice = new HashMap<>();
+        serviceTimeTable = new ServiceTimeTable();
+    }
+
+    /**
+     * 设置固定的服务时间
+     * @param serviceTime
+     */
+    public void setServiceTime(double serviceTime) {
+        this.serviceTime = new ConstantDistribution(serviceTime);
+    }
+
+    /**
+     * 设置服务时间的分布
+     * @param serviceTime
+     */
+    public void setServiceTime(Distribution serviceTime) {
+        this.serviceTime = serviceTime;
+    }
+
+    /**
+     * 为指定类别的实体设置服务时间分布
+     * @param category 由 Assign 分配的类别名称
+     * @param dist
+     */
+    public void setServiceTime(String category, Distribution dist) {
+        serviceTimeChoice.put(category, dist);
+    }
+
+    @Override
+    public void earlyInit() {
+        super.earlyInit();
+        serviceTimeTable.compile(serverTimeChoice, serviceTimeChoice);
+    }
+
+    /**
+     * 返回实体的服务时间（秒），按实体的类别编号查表选择服务时间分布
+     * @param entity
+     * @return
+     */
+    protected final double getServiceTime(Entity entity) {
+        return serviceTimeTable.select(entity, serviceTime).sample(getRandomStream());
+    }
+}
@@ -1,11 +1,13 @@
 package cn.softeng.processflow;
 
 import cn.softeng.basicsim.Entity;
+import cn.softeng.distributions.AliasTable;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.*;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * @date: 2021/3/10 19:58
@@ -13,12 +15,37 @@ import java.util.*;
  */
 @Slf4j
 public class Assign extends LinkedComponent {
+    /**
+     * 分配的属性名称
+     */
+    public static final String COLOR = "color";
+
+    /**
+     * 全局的类别名称到类别编号的映射，编号从0开始连续分配，供按类别查表的组件使用
+     */
+    private static final HashMap<String, Integer> categoryIds = new HashMap<>();
+
+    /**
+     * 最近一次解析 COLOR 槽位所用的属性表及其槽位
+     */
+    private AttributeSchema colorSchema;
+    private int colorSlot;
 
     private Map<String, Integer> assignments;
 
-    private Random random = new Random();
+    /**
+     * 由 assignments 编译得到的属性值及其别名表，只在 addAssignment 时重建
+     */
+    private String[] categories;
+    private int[] categoryNumbers;
+    private AliasTable aliasTable;
 
-    private List<Object> shuffledList = new LinkedList<>();
+    /**
+     * 洗牌策略所用的牌组：每个属性值按权重重复若干次，前 deckRemaining 张为尚未抽出的牌
+     * 只在第一次使用洗牌策略时建立，重新编译后置为 null
+     */
+    private String[] deck;
+    private int deckRemaining;
 
     public Assign() {
 
@@ -28,12 +55,59 @@ public class Assign extends LinkedComponent {
         setName(name);
     }
 
+    /**
+     * 设置属性值及其权重，并编译为别名表，之后对 assign 的修改不会影响分配
+     * @param assign 属性值到权重的映射
+     */
     public void addAssignment(Map<String, Integer> assign) {
-        assignments = assign;
+        assignments = new HashMap<>(assign);
+        compileAssignments();
     }
 
     {
         assignments = new HashMap<>();
+        categories = new String[0];
+        categoryNumbers = new int[0];
+    }
+
+    /**
+     * 按权重编译别名表，权重为0的属性值不会被分配
+     */
+    private void compileAssignments() {
+        int n = assignments.size();
+        categories = new String[n];
+        categoryNumbers = new int[n];
+        double[] weights = new double[n];
+        int total = 0;
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : assignments.entrySet()) {
+            categories[i] = entry.getKey();
+            categoryNumbers[i] = getCategoryId(entry.getKey());
+            weights[i] = entry.getValue();
+            total += entry.getValue();
+            i++;
+        }
+        aliasTable = total > 0 ? new AliasTable(weights) : null;
+        deck = null;
+    }
+
+    /**
+     * 建立洗牌策略所用的牌组
+     */
+    private void buildDeck() {
+        int total = 0;
+        for (String category : categories) {
+            total += assignments.get(category);
+        }
+        deck = new String[total];
+        int k = 0;
+        for (String category : categories) {
+            int weight = assignments.get(category);
+            for (int j = 0; j < weight; j++) {
+                deck[k++] = category;
+            }
+        }
+        deckRemaining = deck.length;
     }
 
     /**
@@ -45,78 +119,131 @@ public class Assign extends LinkedComponent {
         // 调用父类 LinkedComponent的addEntity()方法
         super.addEntity(entity);
 
-        String assign = randomAssign(assignments);
+        if (aliasTable == null) {
+            error("No assignment with a positive weight has been added");
+        }
+        int index = aliasTable.sample(getRandomStream());
         SimEntity simEntity = (SimEntity) entity;
-        simEntity.getAttribute().put("color", assign);
+        if (simEntity.getSchema() != colorSchema) {
+            colorSchema = simEntity.getSchema();
+            colorSlot = colorSchema.referenceSlot(COLOR);
+        }
+        simEntity.setRef(colorSlot, categories[index]);
+        simEntity.setCategoryId(categoryNumbers[index]);
 
         // 将临时实体传递给下一个组件
         this.sendToNextComponent(entity);
     }
 
     /**
-     * 按照权重来分配属性，使用随机函数
-     * @param choice
+     * 返回类别名称对应的编号，名称第一次出现时分配新的编号
+     * @param category
      * @return
      */
-    public String randomAssign(Map<String, Integer> choice) {
-        List<Integer> weights = new ArrayList<>(choice.values());
-        List<Integer> weightTmp = new ArrayList<>(weights.size() + 1);
-        weightTmp.add(0);
-        Integer sum = 0;
-        for (Integer w : weights) {
-            sum += w;
-            weightTmp.add(sum);
+    public static int getCategoryId(String category) {
+        synchronized (categoryIds) {
+            Integer ret = categoryIds.get(category);
+            if (ret == null) {
+                ret = categoryIds.size();
+                categoryIds.put(category, ret);
+            }
+            return ret;
         }
+    }
 
-        int rand = random.nextInt(sum);
-
-        int index = 0;
+    /**
+     * 返回类别名称对应的编号，不分配新的编号
+     * @param category
+     * @return 名称未出现过时返回-1
+     */
+    public static int findCategoryId(String category) {
+        synchronized (categoryIds) {
+            Integer ret = categoryIds.get(category);
+            return ret == null ? -1 : ret;
+        }
+    }
 
-        for (int i = weightTmp.size() - 1; i > 0; i--) {
-            if (rand >= weightTmp.get(i)) {
-                index = i;
-                break;
-            }
+    /**
+     * 返回实体的类别编号，实体没有类别编号时按其 COLOR 属性查找
+     * @param entity
+     * @return 实体没有类别时返回-1
+     */
+    static int categoryIdOf(Entity entity) {
+        if (!(entity instanceof SimEntity)) {
+            return -1;
         }
-        String res = "error";
-        for (String str : choice.keySet()) {
-            if (choice.get(str).equals(weights.get(index))) {
-                res = str;
-                break;
+        SimEntity simEntity = (SimEntity) entity;
+        int id = simEntity.getCategoryId();
+        if (id < 0) {
+            // 兼容直接通过属性设置类别名称的实体
+            Object category = simEntity.getAttribute().get(COLOR);
+            if (category instanceof String) {
+                id = findCategoryId((String) category);
             }
         }
-        return res;
+        return id;
     }
 
     /**
-     * 按照权重来分配属性，使用洗牌策略
-     * @param choice
+     * 按照权重来分配属性，从别名表中抽样，O(1) 且不分配对象
      * @return
      */
-    public String shuffleAssign(Map<String, Integer> choice) {
-        if (shuffledList.size() == 0) {
-            for (Map.Entry<String, Integer> entry : choice.entrySet()) {
-                for (int i = 0; i < entry.getValue(); i++) {
-                    shuffledList.add(entry.getKey());
-                }
-            }
+    public String randomAssign() {
+        if (aliasTable == null) {
+            error("No assignment with a positive weight has been added");
         }
-        Collections.shuffle(shuffledList);
-        return (String) shuffledList.remove(0);
+        return categories[aliasTable.sample(getRandomStream())];
     }
 
-    @Override
-    public void updateStatistics() {
-        numAddMap.put(getSimTime(), getNumberAdded());
-        numInProgressMap.put(getSimTime(), getNumberInProgress());
-        numProcessedMap.put(getSimTime(), getNumberProcessed());
+    /**
+     * 按照权重来分配属性，choice 与当前的属性值及权重不同时先重新编译
+     * @param choice 属性值到权重的映射
+     * @return
+     * @deprecated 使用 addAssignment(Map) 设置权重后调用 randomAssign()
+     */
+    @Deprecated
+    public String randomAssign(Map<String, Integer> choice) {
+        if (!choice.equals(assignments)) {
+            addAssignment(choice);
+        }
+        return randomAssign();
     }
 
-    @Override
-    public void clearStatistics() {
-        numAddMap.clear();
-        numInProgressMap.clear();
-        numProcessedMap.clear();
+    /**
+     * 按照权重来分配属性，使用洗牌策略：每一轮按权重抽完所有的牌后再重新开始
+     * @return
+     */
+    public String shuffleAssign() {
+        if (deck == null) {
+            buildDeck();
+        }
+        if (deck.length == 0) {
+            error("No assignment with a positive weight has been added");
+        }
+        if (deckRemaining == 0) {
+            deckRemaining = deck.length;
+        }
+        // 从尚未抽出的牌中随机抽一张，放到已抽出部分的开头
+        int j = getRandomStream().nextInt(deckRemaining);
+        deckRemaining--;
+        String ret = deck[j];
+        deck[j] = deck[deckRemaining];
+        deck[deckRemaining] = ret;
+        return ret;
+    }
+
+    /**
+     * 按照权重来分配属性，使用洗牌策略，choice 与当前的属性值及权重不同时先重新编译
+     * @param choice 属性值到权重的映射
+     * @return
+     * @deprecated 使用 addAssignment(Map) 设置权重后调用 shuffleAssign()
+     */
+    @Deprecated
+    public String shuffleAssign(Map<String, Integer> choice) {
+        if (!choice.equals(assignments)) {
+            addAssignment(choice);
+        }
+        return shuffleAssign();
     }
 
 //    public static void main(String[] args) {
@@ -0,0 +1,164 @@
+package cn.softeng.processflow;
+
+import cn.softeng.basicsim.ErrorException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * 模型级的实体属性表：将属性名称解析为槽位下标，每个 SimEntity 按槽位保存属性值
+ * 原始类型（int、long、double）的属性按位保存在 long 数组中，其他属性保存在 Object 数组中，两类槽位分别编号
+ * 组件应在初始化时解析一次槽位，之后通过 SimEntity.getInt(slot)、getRef(slot) 等方法读写，避免哈希和装箱
+ * 未在属性表中定义的名称通过 Map 视图写入时，按对象属性定义
+ * @date: 10/18/2026 7:00 PM
+ */
+public final class AttributeSchema {
+    /**
+     * 模型默认使用的属性表
+     */
+    public static final AttributeSchema DEFAULT = new AttributeSchema();
+
+    /**
+     * 属性名称到槽位的映射
+     */
+    private final HashMap<String, Slot> slots;
+
+    /**
+     * 按槽位下标排列的属性名称
+     */
+    private final ArrayList<String> primitiveNames;
+    private final ArrayList<String> referenceNames;
+
+    /**
+     * 原始类型槽位中保存的数据类型
+     */
+    private final ArrayList<Kind> primitiveKinds;
+
+    public AttributeSchema() {
+        slots = new HashMap<>();
+        primitiveNames = new ArrayList<>();
+        primitiveKinds = new ArrayList<>();
+        referenceNames = new ArrayList<>();
+    }
+
+    /**
+     * 返回整数（int、long）属性的槽位，属性不存在时新建
+     * @param name 属性名称
+     * @return
+     */
+    public int longSlot(String name) {
+        return primitiveSlot(name, Kind.Long);
+    }
+
+    /**
+     * 返回浮点数属性的槽位，属性不存在时新建
+     * @param name 属性名称
+     * @return
+     */
+    public int doubleSlot(String name) {
+        return primitiveSlot(name, Kind.Double);
+    }
+
+    private synchronized int primitiveSlot(String name, Kind kind) {
+        Slot slot = slots.get(name);
+        if (slot == null) {
+            slot = new Slot(kind, primitiveNames.size());
+            slots.put(name, slot);
+            primitiveNames.add(name);
+            primitiveKinds.add(kind);
+        }
+        if (slot.kind != kind) {
+            throw new ErrorException("Attribute %s is not a %s attribute", name, kind);
+        }
+        return slot.index;
+    }
+
+    /**
+     * 返回对象属性的槽位，属性不存在时新建
+     * @param name 属性名称
+     * @return
+     */
+    public synchronized int referenceSlot(String name) {
+        Slot slot = slots.get(name);
+        if (slot == null) {
+            slot = new Slot(Kind.Reference, referenceNames.size());
+            slots.put(name, slot);
+            referenceNames.add(name);
+        }
+        if (slot.kind != Kind.Reference) {
+            throw new ErrorException("Attribute %s is not a reference attribute", name);
+        }
+        return slot.index;
+    }
+
+    /**
+     * 查找已定义的属性
+     * @param name 属性名称
+     * @return 属性未定义时返回null
+     */
+    synchronized Slot find(String name) {
+        return slots.get(name);
+    }
+
+    synchronized int primitiveCount() {
+        return primitiveNames.size();
+    }
+
+    synchronized int referenceCount() {
+        return referenceNames.size();
+    }
+
+    synchronized String primitiveName(int index) {
+        return primitiveNames.get(index);
+    }
+
+    synchronized Kind primitiveKind(int index) {
+        return primitiveKinds.get(index);
+    }
+
+    synchronized String referenceName(int index) {
+        return referenceNames.get(index);
+    }
+
+    /**
+     * 返回所有已定义的属性名称
+     * @return
+     */
+    public synchronized List<String> getNames() {
+        ArrayList<String> ret = new ArrayList<>(primitiveNames);
+        ret.addAll(referenceNames);
+        return ret;
+    }
+
+    /**
+     * 属性的存储类型
+     */
+    enum Kind {
+        /**
+         * int、long 类型，保存在原始类型槽位中
+         */
+        Long,
+        /**
+         * double 类型，按位保存在原始类型槽位中
+         */
+        Double,
+        /**
+         * 其他类型，保存在 Object 槽位中
+         */
+        Reference,
+    }
+
+    /**
+     * 属性对应的槽位
+     */
+    static final class Slot {
+        final Kind kind;
+        final int index;
+
+        Slot(Kind kind, int index) {
+            this.kind = kind;
+            this.index = index;
+        }
+    }
+}
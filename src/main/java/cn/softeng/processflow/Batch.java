@@ -0,0 +1,155 @@
+package cn.softeng.processflow;
+
+import cn.softeng.basicsim.Entity;
+import cn.softeng.basicsim.EntityTarget;
+import cn.softeng.events.EventHandle;
+import cn.softeng.events.EventManager;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+
+/**
+ * Batch 将到达的实体组装成批次：凑满 batchSize 个实体，或者批次中第一个实体等待超过 maxWaitTime 时，
+ * 用已到达的实体生成一个 BatchEntity 传给下一个组件，批次由下游的 Unbatch 拆分
+ * 等待超时只使用一个事件，批次凑满时取消该事件
+ * numberProcessed 统计发出的批次数
+ * @date: 10/18/2026 11:25 PM
+ */
+@Slf4j
+public class Batch extends LinkedComponent {
+    /**
+     * 每个批次的实体数，在初始化时生效，运行期间修改要到下一次初始化才会改变批次大小
+     */
+    @Setter
+    @Getter
+    private int batchSize;
+
+    /**
+     * 批次中第一个实体的最长等待时间（秒），超时后按已到达的实体数发出批次，默认不超时
+     */
+    @Setter
+    private double maxWaitTime;
+
+    /**
+     * 用于生成批次的原型，未设置时生成 BatchEntity
+     */
+    @Setter
+    private BatchEntity prototypeEntity;
+
+    /**
+     * 正在组装的批次中的实体，数组长度即本次运行的批次大小
+     */
+    private Entity[] waiting;
+    private int waitingCount;
+
+    /**
+     * 到目前为止发出的批次数
+     */
+    private long numberBatched;
+
+    private final TimeoutTarget timeoutTarget = new TimeoutTarget(this);
+    private EventHandle timeoutHandle = new EventHandle();
+
+    {
+        batchSize = 2;
+        maxWaitTime = Double.POSITIVE_INFINITY;
+        prototypeEntity = new BatchEntity(true);
+    }
+
+    public Batch() {}
+
+    public Batch(String name) {
+        setName(name);
+    }
+
+    public Batch(Integer id) {
+        setName(String.valueOf(id));
+    }
+
+    @Override
+    public void earlyInit() {
+        super.earlyInit();
+        if (batchSize < 1) {
+            error("Batch size must be at least 1: %d", batchSize);
+        }
+        waiting = new Entity[batchSize];
+        waitingCount = 0;
+        numberBatched = 0;
+        // 上一次运行的事件可能仍留在其他 EventManager 中，重新初始化时换用新的句柄
+        timeoutHandle = new EventHandle();
+    }
+
+    @Override
+    public void addEntity(Entity entity) {
+        super.addEntity(entity);
+        waiting[waitingCount++] = entity;
+        if (waitingCount == waiting.length) {
+            if (timeoutHandle.isScheduled()) {
+                EventManager.killEvent(timeoutHandle);
+            }
+            releaseBatch();
+            return;
+        }
+        // 批次中的第一个实体到达时开始计时
+        if (waitingCount == 1 && maxWaitTime != Double.POSITIVE_INFINITY) {
+            long ticks = EventManager.current().secondsToNearestTick(maxWaitTime);
+            this.scheduleProcessTicks(ticks, 5, true, timeoutTarget, timeoutHandle);
+        }
+    }
+
+    /**
+     * 等待超时，发出未凑满的批次
+     * (相当于命令模式中的接收者，是真正执行命令操作的功能代码)
+     */
+    void timeoutAction() {
+        if (waitingCount > 0) {
+            releaseBatch();
+        }
+    }
+
+    /**
+     * 用正在等待的实体生成批次，并传给下一个组件
+     */
+    private void releaseBatch() {
+        numberBatched++;
+        BatchEntity batch = (BatchEntity) Entity.generateCopy(prototypeEntity, this.getName(), numberBatched);
+        batch.earlyInit();
+        batch.setMembers(Arrays.copyOf(waiting, waitingCount));
+        // 批次沿用第一个实体的类别，下游组件可以按类别选择服务时间
+        if (waiting[0] instanceof SimEntity) {
+            batch.setCategoryId(((SimEntity) waiting[0]).getCategoryId());
+        }
+        Arrays.fill(waiting, 0, waitingCount, null);
+        waitingCount = 0;
+        this.sendToNextComponent(batch);
+    }
+
+    /**
+     * 正在组装的批次中的实体数
+     * @return
+     */
+    public int getWaitingCount() {
+        return waitingCount;
+    }
+
+    @Override
+    public long getNumberInProgress() {
+        return waitingCount;
+    }
+
+    /**
+     * 命令模式中的 ConcreteCommand, 用于执行 Batch 的 timeoutAction()
+     */
+    private static class TimeoutTarget extends EntityTarget<Batch> {
+        TimeoutTarget(Batch ent) {
+            super(ent, "timeoutAction");
+        }
+
+        @Override
+        public void process() {
+            entity.timeoutAction();
+        }
+    }
+}
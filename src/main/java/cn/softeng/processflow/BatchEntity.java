@@ -0,0 +1,90 @@
+package cn.softeng.processflow;
+
+import cn.softeng.basicsim.Entity;
+
+import java.util.Arrays;
+
+/**
+ * 批次实体：由 Batch 组装的载体实体，在 Server、Queue 等组件中作为一个实体流动，
+ * 到达 Unbatch 时拆分为其中的成员实体
+ * @date: 10/18/2026 11:20 PM
+ */
+public class BatchEntity extends SimEntity {
+    private static final Entity[] EMPTY_MEMBERS = new Entity[0];
+
+    /**
+     * 批次中的成员实体，按到达 Batch 的顺序排列
+     */
+    private Entity[] members;
+
+    {
+        members = EMPTY_MEMBERS;
+    }
+
+    public BatchEntity() {}
+
+    public BatchEntity(String name) {
+        setName(name);
+    }
+
+    /**
+     * 创建由 Batch 生成的临时实体
+     * @param generated
+     */
+    protected BatchEntity(boolean generated) {
+        super(generated);
+    }
+
+    @Override
+    protected Entity newGeneratedInstance() {
+        if (getClass() != BatchEntity.class) {
+            return super.newGeneratedInstance();
+        }
+        BatchEntity ret = new BatchEntity(true);
+        ret.setSchema(getSchema());
+        return ret;
+    }
+
+    /**
+     * 设置批次的成员，数组由批次持有，调用者不应再修改
+     * @param members
+     */
+    void setMembers(Entity[] members) {
+        this.members = members;
+    }
+
+    /**
+     * 取出并清空批次的成员
+     * @return
+     */
+    Entity[] takeMembers() {
+        Entity[] ret = members;
+        members = EMPTY_MEMBERS;
+        return ret;
+    }
+
+    /**
+     * 批次中的成员数
+     * @return
+     */
+    public int getMemberCount() {
+        return members.length;
+    }
+
+    /**
+     * 返回指定位置的成员
+     * @param index 成员的位置，从0开始
+     * @return
+     */
+    public Entity getMember(int index) {
+        return members[index];
+    }
+
+    /**
+     * 返回成员的副本
+     * @return
+     */
+    public Entity[] getMembers() {
+        return Arrays.copyOf(members, members.length);
+    }
+}
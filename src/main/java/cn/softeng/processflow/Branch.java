@@ -0,0 +1,289 @@
+package cn.softeng.processflow;
+
+import cn.softeng.basicsim.Entity;
+import cn.softeng.distributions.AliasTable;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Branch 将每个到达的实体传给多个下游组件中的一个，选择方式见 BranchPolicy
+ * 概率和路由表在初始化时编译：概率编译为别名表，类别和属性值编译为按类别编号或属性值索引的数组，
+ * 每次选择为 O(1) 且不分配对象；ShortestQueue 需要比较所有下游组件，为 O(K)
+ * @date: 10/19/2026 12:15 AM
+ */
+@Slf4j
+public class Branch extends LinkedComponent {
+    private static final int[] EMPTY_ROUTES = new int[0];
+
+    /**
+     * 选择下游组件的方式
+     */
+    @Setter
+    @Getter
+    private BranchPolicy branchPolicy;
+
+    /**
+     * 下游组件，按添加的顺序编号
+     */
+    private final ArrayList<LinkedComponent> nextComponentList;
+
+    /**
+     * 各下游组件的权重，按 Probability 方式选择时使用
+     */
+    private double[] probabilities;
+
+    /**
+     * 类别名称到下游组件编号的映射，按 Category 方式选择时使用
+     */
+    private final Map<String, Integer> categoryRoutes;
+
+    /**
+     * 按 Attribute 方式选择时所用的整数属性名称，以及属性值到下游组件编号的映射
+     */
+    @Setter
+    @Getter
+    private String routeAttribute;
+    private final Map<Integer, Integer> valueRoutes;
+
+    /**
+     * 实体没有类别或属性值，或者类别或属性值未指定路由时选择的下游组件编号
+     */
+    @Setter
+    private int defaultRoute;
+
+    /**
+     * 初始化时编译得到的下游组件数组和路由表
+     */
+    private LinkedComponent[] successors;
+    private AliasTable aliasTable;
+    private int[] routeTable;
+    private int[] valueTable;
+
+    /**
+     * 最近一次解析 routeAttribute 槽位所用的属性表及其槽位
+     */
+    private AttributeSchema routeSchema;
+    private int routeSlot;
+
+    /**
+     * 按 RoundRobin 方式选择时，下一个下游组件的编号
+     */
+    private int nextIndex;
+
+    /**
+     * 传给各下游组件的实体数
+     */
+    private long[] numberRouted;
+
+    {
+        branchPolicy = BranchPolicy.Probability;
+        nextComponentList = new ArrayList<>();
+        categoryRoutes = new HashMap<>();
+        valueRoutes = new HashMap<>();
+        defaultRoute = 0;
+    }
+
+    public Branch() {}
+
+    public Branch(String name) {
+        setName(name);
+    }
+
+    public Branch(Integer id) {
+        setName(String.valueOf(id));
+    }
+
+    /**
+     * 添加下游组件，编号从0开始
+     * @param next
+     * @return 下游组件的编号
+     */
+    public int addNextComponent(LinkedComponent next) {
+        nextComponentList.add(next);
+        return nextComponentList.size() - 1;
+    }
+
+    /**
+     * 设置各下游组件的权重，按下游组件的编号排列
+     * @param weights 非负权重，不必归一化
+     */
+    public void setProbabilities(double... weights) {
+        probabilities = weights.clone();
+    }
+
+    /**
+     * 指定类别的实体传给指定编号的下游组件
+     * @param category 由 Assign 分配的类别名称
+     * @param index 下游组件的编号
+     */
+    public void setRoute(String category, int index) {
+        categoryRoutes.put(category, index);
+    }
+
+    /**
+     * routeAttribute 的值为 value 的实体传给指定编号的下游组件
+     * @param value 属性值，路由表按属性值索引，应为较小的非负整数
+     * @param index 下游组件的编号
+     */
+    public void setRoute(int value, int index) {
+        valueRoutes.put(value, index);
+    }
+
+    @Override
+    public void earlyInit() {
+        super.earlyInit();
+        int n = nextComponentList.size();
+        if (n == 0) {
+            error("At least one next component is required");
+        }
+        successors = nextComponentList.toArray(new LinkedComponent[n]);
+        numberRouted = new long[n];
+        nextIndex = 0;
+        if (defaultRoute < 0 || defaultRoute >= n) {
+            error("Default route %d is out of range", defaultRoute);
+        }
+
+        aliasTable = null;
+        if (branchPolicy == BranchPolicy.Probability) {
+            if (probabilities == null || probabilities.length != n) {
+                error("One probability is required for each of the %d next components", n);
+            }
+            aliasTable = new AliasTable(probabilities);
+        }
+
+        routeTable = EMPTY_ROUTES;
+        for (Map.Entry<String, Integer> entry : categoryRoutes.entrySet()) {
+            int index = entry.getValue();
+            if (index < 0 || index >= n) {
+                error("Route %d for category %s is out of range", index, entry.getKey());
+            }
+            routeTable = putRoute(routeTable, Assign.getCategoryId(entry.getKey()), index);
+        }
+
+        if (branchPolicy == BranchPolicy.Attribute && routeAttribute == null) {
+            error("A route attribute is required");
+        }
+        valueTable = EMPTY_ROUTES;
+        for (Map.Entry<Integer, Integer> entry : valueRoutes.entrySet()) {
+            int index = entry.getValue();
+            if (index < 0 || index >= n) {
+                error("Route %d for value %d is out of range", index, entry.getKey());
+            }
+            if (entry.getKey() < 0) {
+                error("Route value %d must not be negative", entry.getKey());
+            }
+            valueTable = putRoute(valueTable, entry.getKey(), index);
+        }
+        routeSchema = null;
+    }
+
+    /**
+     * 在路由表的 key 处填入下游组件编号，必要时扩大路由表，未指定路由的位置为-1
+     */
+    private static int[] putRoute(int[] table, int key, int index) {
+        if (key >= table.length) {
+            int old = table.length;
+            table = Arrays.copyOf(table, key + 1);
+            Arrays.fill(table, old, table.length, -1);
+        }
+        table[key] = index;
+        return table;
+    }
+
+    @Override
+    public void addEntity(Entity entity) {
+        super.addEntity(entity);
+        int index = selectRoute(entity);
+        numberRouted[index]++;
+        this.sendToComponent(entity, successors[index]);
+    }
+
+    /**
+     * 返回实体要传给的下游组件的编号
+     * @param entity
+     * @return
+     */
+    private int selectRoute(Entity entity) {
+        switch (branchPolicy) {
+            case Probability:
+                return aliasTable.sample(getRandomStream());
+            case Category:
+                return selectByCategory(entity);
+            case Attribute:
+                return selectByAttribute(entity);
+            case ShortestQueue:
+                return selectShortest();
+            default:
+                int ret = nextIndex;
+                nextIndex = ret + 1 == successors.length ? 0 : ret + 1;
+                return ret;
+        }
+    }
+
+    private int selectByCategory(Entity entity) {
+        int id = Assign.categoryIdOf(entity);
+        if (id < 0 || id >= routeTable.length || routeTable[id] < 0) {
+            return defaultRoute;
+        }
+        return routeTable[id];
+    }
+
+    private int selectByAttribute(Entity entity) {
+        if (!(entity instanceof SimEntity)) {
+            return defaultRoute;
+        }
+        SimEntity simEntity = (SimEntity) entity;
+        if (simEntity.getSchema() != routeSchema) {
+            routeSchema = simEntity.getSchema();
+            routeSlot = routeSchema.longSlot(routeAttribute);
+        }
+        if (!simEntity.hasPrimitive(routeSlot)) {
+            return defaultRoute;
+        }
+        long value = simEntity.getLong(routeSlot);
+        if (value < 0 || value >= valueTable.length || valueTable[(int) value] < 0) {
+            return defaultRoute;
+        }
+        return valueTable[(int) value];
+    }
+
+    private int selectShortest() {
+        int ret = 0;
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < successors.length; i++) {
+            long len = getQueueLength(successors[i]);
+            if (len < min) {
+                min = len;
+                ret = i;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * 下游组件中的实体数，队列按其中等待的实体数计算
+     * @param comp
+     * @return
+     */
+    private static long getQueueLength(LinkedComponent comp) {
+        if (comp instanceof Queue) {
+            return ((Queue) comp).getCount();
+        }
+        return comp.getNumberInProgress();
+    }
+
+    /**
+     * 返回传给指定下游组件的实体数
+     * @param index 下游组件的编号
+     * @return
+     */
+    public long getNumberRouted(int index) {
+        return numberRouted[index];
+    }
+}
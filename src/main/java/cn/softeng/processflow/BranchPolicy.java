@@ -0,0 +1,28 @@
+package cn.softeng.processflow;
+
+/**
+ * Branch 选择下游组件的方式
+ * @date: 10/19/2026 12:10 AM
+ */
+public enum BranchPolicy {
+    /**
+     * 按设置的概率随机选择（默认方式）
+     */
+    Probability,
+    /**
+     * 按实体的类别查表选择
+     */
+    Category,
+    /**
+     * 按实体整数属性的值查表选择
+     */
+    Attribute,
+    /**
+     * 选择在途实体最少的下游组件，相同时选择编号最小的
+     */
+    ShortestQueue,
+    /**
+     * 轮流选择
+     */
+    RoundRobin
+}
@@ -0,0 +1,156 @@
+package cn.softeng.processflow;
+
+import cn.softeng.basicsim.Entity;
+import cn.softeng.basicsim.EntityTarget;
+import cn.softeng.events.EventHandle;
+import cn.softeng.events.EventManager;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+
+/**
+ * Delay 使每个到达的实体经过固定的时间后再传给下一个组件，相当于一条传送带，容纳的实体数不受限制
+ * 延迟时间相同，实体按到达顺序离开，在途实体及其离开时刻保存在环形缓冲区中，
+ * 事件管理器中始终只有一个队首实体离开时刻对应的事件
+ * @date: 10/18/2026 11:45 PM
+ */
+@Slf4j
+public class Delay extends LinkedComponent {
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * 实体在该组件中经过的时间（秒）
+     */
+    @Setter
+    @Getter
+    private double duration;
+
+    /**
+     * 在途实体及其离开时刻（ticks），从 head 开始共 size 个
+     */
+    private Entity[] entities;
+    private long[] exitTicks;
+    private int head;
+    private int size;
+
+    private final ExitTarget exitTarget = new ExitTarget(this);
+    private EventHandle exitHandle = new EventHandle();
+
+    {
+        duration = 0;
+        entities = new Entity[INITIAL_CAPACITY];
+        exitTicks = new long[INITIAL_CAPACITY];
+    }
+
+    public Delay() {}
+
+    public Delay(String name) {
+        setName(name);
+    }
+
+    public Delay(Integer id) {
+        setName(String.valueOf(id));
+    }
+
+    @Override
+    public void earlyInit() {
+        super.earlyInit();
+        if (duration < 0) {
+            error("Duration must not be negative: %f", duration);
+        }
+        Arrays.fill(entities, null);
+        head = 0;
+        size = 0;
+        // 上一次运行的事件可能仍留在其他 EventManager 中，重新初始化时换用新的句柄
+        exitHandle = new EventHandle();
+    }
+
+    @Override
+    public void addEntity(Entity entity) {
+        super.addEntity(entity);
+        long exitTick = getSimTicks() + EventManager.current().secondsToNearestTick(duration);
+        // 运行期间修改了延迟时间时，仍保证实体按到达顺序离开
+        if (size > 0) {
+            exitTick = Math.max(exitTick, exitTicks[index(size - 1)]);
+        }
+        if (size == entities.length) {
+            grow();
+        }
+        int tail = index(size);
+        entities[tail] = entity;
+        exitTicks[tail] = exitTick;
+        size++;
+        if (!exitHandle.isScheduled()) {
+            scheduleExit();
+        }
+    }
+
+    /**
+     * 队首实体到达离开时刻，将所有到期的实体传给下一个组件
+     * (相当于命令模式中的接收者，是真正执行命令操作的功能代码)
+     */
+    void exitAction() {
+        long simTicks = getSimTicks();
+        while (size > 0 && exitTicks[head] <= simTicks) {
+            Entity entity = entities[head];
+            entities[head] = null;
+            head = index(1);
+            size--;
+            this.sendToNextComponent(entity);
+        }
+        if (size > 0 && !exitHandle.isScheduled()) {
+            scheduleExit();
+        }
+    }
+
+    /**
+     * 为队首实体的离开时刻调度事件
+     */
+    private void scheduleExit() {
+        long ticks = exitTicks[head] - getSimTicks();
+        this.scheduleProcessTicks(ticks, 5, true, exitTarget, exitHandle);
+    }
+
+    private int index(int offset) {
+        int i = head + offset;
+        return i < entities.length ? i : i - entities.length;
+    }
+
+    private void grow() {
+        int n = entities.length * 2;
+        Entity[] newEntities = new Entity[n];
+        long[] newTicks = new long[n];
+        for (int i = 0; i < size; i++) {
+            int j = index(i);
+            newEntities[i] = entities[j];
+            newTicks[i] = exitTicks[j];
+        }
+        entities = newEntities;
+        exitTicks = newTicks;
+        head = 0;
+    }
+
+    /**
+     * 在途的实体数
+     * @return
+     */
+    public int getCount() {
+        return size;
+    }
+
+    /**
+     * 命令模式中的 ConcreteCommand, 用于执行 Delay 的 exitAction()
+     */
+    private static class ExitTarget extends EntityTarget<Delay> {
+        ExitTarget(Delay ent) {
+            super(ent, "exitAction");
+        }
+
+        @Override
+        public void process() {
+            entity.exitAction();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package cn.softeng.processflow;
+
+/**
+ * 队列有新实体加入时，通知队列使用者的方式
+ * @date: 10/18/2026 10:20 PM
+ */
+public enum DispatchPolicy {
+    /**
+     * 通知所有使用者，由各个使用者自行判断能否处理（默认方式）
+     */
+    Broadcast,
+    /**
+     * 只通知空闲服务中编号最小的一个
+     */
+    FirstIdle,
+    /**
+     * 在空闲服务中轮流选择
+     */
+    RoundRobin,
+    /**
+     * 选择利用率最低的空闲服务
+     */
+    LeastUtilised
+}
@@ -1,6 +1,8 @@
 package cn.softeng.processflow;
 
 import cn.softeng.basicsim.Entity;
+import cn.softeng.distributions.ConstantDistribution;
+import cn.softeng.distributions.Distribution;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
@@ -16,10 +18,9 @@ public class EntityGenerator extends LinkedService {
     @Setter
     private double firstArrivalTime;
     /**
-     * 生成实体之间的到达间隔时间
+     * 生成实体之间的到达间隔时间的分布
      */
-    @Setter
-    private double interArrivalTime;
+    private Distribution interArrivalTime;
 
     /**
      * 每次到达要生成的实体数
@@ -33,6 +34,12 @@ public class EntityGenerator extends LinkedService {
     @Setter
     private Entity prototypeEntity;
 
+    /**
+     * 可选的实体池，设置后优先从池中取出实体
+     */
+    @Setter
+    private SimEntityPool entityPool;
+
     /**
      * 要生成的最大实体数
      */
@@ -46,7 +53,7 @@ public class EntityGenerator extends LinkedService {
 
     {
         this.firstArrivalTime = 0;
-        this.interArrivalTime = 1;
+        this.interArrivalTime = new ConstantDistribution(1);
         this.entitiesPerArrival = 1;
         this.prototypeEntity = new SimEntity("prototypeEntity");
         this.maxNumber = Double.MAX_VALUE;
@@ -62,6 +69,22 @@ public class EntityGenerator extends LinkedService {
         setName(String.valueOf(id));
     }
 
+    /**
+     * 设置固定的到达间隔时间
+     * @param interArrivalTime
+     */
+    public void setInterArrivalTime(double interArrivalTime) {
+        this.interArrivalTime = new ConstantDistribution(interArrivalTime);
+    }
+
+    /**
+     * 设置到达间隔时间的分布
+     * @param interArrivalTime
+     */
+    public void setInterArrivalTime(Distribution interArrivalTime) {
+        this.interArrivalTime = interArrivalTime;
+    }
+
     @Override
     public void startUp() {
         super.startUp();
@@ -91,10 +114,13 @@ public class EntityGenerator extends LinkedService {
         int num = (int) entitiesPerArrival;
         for (int i = 0; i < num; i++) {
             numberGenerated++;
-            Entity proto = prototypeEntity;
-            StringBuilder sb = new StringBuilder();
-            sb.append(this.getName()).append("_").append(numberGenerated);
-            Entity entity = Entity.fastCopy(proto, sb.toString());
+            // 生成的实体不登记到全局集合中，名称在使用时才生成
+            Entity entity;
+            if (entityPool != null) {
+                entity = entityPool.acquire(prototypeEntity, this.getName(), numberGenerated);
+            } else {
+                entity = Entity.generateCopy(prototypeEntity, this.getName(), numberGenerated);
+            }
             entity.earlyInit();
             // 将实体传送给链中的下一个元素
             this.sendToNextComponent(entity);
@@ -107,7 +133,7 @@ public class EntityGenerator extends LinkedService {
         if (numberGenerated == 0) {
             return firstArrivalTime;
         }
-        return interArrivalTime;
+        return interArrivalTime.sample(getRandomStream());
     }
 
     @Override
@@ -115,19 +141,4 @@ public class EntityGenerator extends LinkedService {
         return 0;
     }
 
-    @Override
-    public void updateStatistics() {
-//        log.debug("Generator: {} -> NumAdd: {}, NumberProcessed: {}, NumInProcess: {}", this.getName(), this.getNumberAdded(), this.getNumberProcessed(), this.getNumberInProgress());
-        numAddMap.put(getSimTime(), getNumberAdded());
-        numInProgressMap.put(getSimTime(), getNumberInProgress());
-        numProcessedMap.put(getSimTime(), getNumberProcessed());
-    }
-
-    @Override
-    public void clearStatistics() {
-        numAddMap.clear();
-        numInProgressMap.clear();
-        numProcessedMap.clear();
-    }
-
 }
@@ -32,6 +32,12 @@ public class EntityLauncher extends LinkedService{
     @Setter
     private Entity prototypeEntity;
 
+    /**
+     * 可选的实体池，设置后优先从池中取出实体
+     */
+    @Setter
+    private SimEntityPool entityPool;
+
     public EntityLauncher() {}
 
     public EntityLauncher(String name) {
@@ -110,10 +116,13 @@ public class EntityLauncher extends LinkedService{
         int num = (int) entitiesPerArrival;
         for (int i = 0; i < num; i++) {
             numberGenerated++;
-            Entity proto = prototypeEntity;
-            StringBuilder sb = new StringBuilder();
-            sb.append(this.getName()).append("_").append(numberGenerated);
-            Entity entity = Entity.fastCopy(proto, sb.toString());
+            // 生成的实体不登记到全局集合中，名称在使用时才生成
+            Entity entity;
+            if (entityPool != null) {
+                entity = entityPool.acquire(prototypeEntity, this.getName(), numberGenerated);
+            } else {
+                entity = Entity.generateCopy(prototypeEntity, this.getName(), numberGenerated);
+            }
             entity.earlyInit();
             // 将实体传送给链中的下一个元素
             this.sendToNextComponent(entity);
@@ -144,22 +153,4 @@ public class EntityLauncher extends LinkedService{
         return 0;
     }
 
-    /**
-     * 更新统计数据
-     */
-    @Override
-    public void updateStatistics() {
-//        log.debug("Launcher: {} -> NumAdd: {}, NumberProcessed: {}, NumInProcess: {}", this.getName(), this.getNumberAdded(), this.getNumberProcessed(), this.getNumberInProgress());
-        numAddMap.put(getSimTime(), getNumberAdded());
-        numInProgressMap.put(getSimTime(), getNumberInProgress());
-        numProcessedMap.put(getSimTime(), getNumberProcessed());
-    }
-
-    @Override
-    public void clearStatistics() {
-        numAddMap.clear();
-        numInProgressMap.clear();
-        numProcessedMap.clear();
-    }
-
 }
@@ -1,6 +1,7 @@
 package cn.softeng.processflow;
 
 import cn.softeng.basicsim.Entity;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.Map;
@@ -12,6 +13,12 @@ import java.util.Map;
 @Slf4j
 public class EntitySink extends LinkedComponent {
 
+    /**
+     * 可选的实体池，设置后到达的临时实体被归还到池中，而不是直接删除
+     */
+    @Setter
+    private SimEntityPool entityPool;
+
     public EntitySink() {}
 
     public EntitySink(String name) {
@@ -25,31 +32,21 @@ public class EntitySink extends LinkedComponent {
     @Override
     public void addEntity(Entity entity) {
         super.addEntity(entity);
-        SimEntity simEntity = (SimEntity) entity;
-        Map<String, Object> map = simEntity.getAttribute();
-        for (Map.Entry entry : map.entrySet()) {
-            log.debug(entry.getKey() + ": " + entry.getValue());
+        // 属性的 Map 视图每次遍历都会创建条目，只在调试时输出
+        if (log.isDebugEnabled()) {
+            Map<String, Object> map = ((SimEntity) entity).getAttribute();
+            for (Map.Entry<String, Object> entry : map.entrySet()) {
+                log.debug("{}: {}", entry.getKey(), entry.getValue());
+            }
         }
         // 当 nextComponent为空的情况下，只累加 numberProcessed
         this.sendToNextComponent(entity);
         // 终止加入到该组件的实体
-        entity.kill();
-    }
-
-
-    @Override
-    public void updateStatistics() {
-//        log.debug("Sink: {} -> NumAdd: {}, NumberProcessed: {}, NumInProcess: {}", this.getName(), this.getNumberAdded(), this.getNumberProcessed(), this.getNumberInProgress());
-        numAddMap.put(getSimTime(), getNumberAdded());
-        numInProgressMap.put(getSimTime(), getNumberInProgress());
-        numProcessedMap.put(getSimTime(), getNumberProcessed());
-    }
-
-    @Override
-    public void clearStatistics() {
-        numAddMap.clear();
-        numInProgressMap.clear();
-        numProcessedMap.clear();
+        if (entityPool != null) {
+            entityPool.release(entity);
+        } else {
+            entity.kill();
+        }
     }
 
 }
@@ -1,7 +1,14 @@
 package cn.softeng.processflow;
 
+import cn.softeng.DesSim;
 import cn.softeng.basicsim.Entity;
+import cn.softeng.basicsim.EntityTarget;
+import cn.softeng.distributions.RandomStream;
+import cn.softeng.events.EventManager;
 import cn.softeng.states.StateEntity;
+import cn.softeng.statistics.SamplingPolicy;
+import cn.softeng.statistics.StatisticsStore;
+import cn.softeng.statistics.TimeSeries;
 import lombok.Setter;
 
 import java.util.*;
@@ -50,6 +57,17 @@ public class LinkedComponent extends StateEntity {
      */
     private double releaseTime = Double.NaN;
 
+    /**
+     * 随机数流的编号，未设置时由组件名称导出，模型不变时每次运行得到相同的随机数序列
+     */
+    @Setter
+    private Long streamNumber;
+
+    /**
+     * 该组件的随机数流，每次初始化时由模型种子和流编号重新生成
+     */
+    private RandomStream randomStream;
+
     {
         defaultEntity = null;
         nextComponent = null;
@@ -64,6 +82,29 @@ public class LinkedComponent extends StateEntity {
         initialNumberProcessed = 0;
         receivedEntity = defaultEntity;
         releaseTime = Double.NaN;
+        randomStream = null;
+        // 上一次运行中的采样事件在下次触发时停止
+        samplingRun++;
+        this.markStatisticsDirty();
+    }
+
+    /**
+     * 返回该组件的随机数流
+     * @return
+     */
+    protected final RandomStream getRandomStream() {
+        if (randomStream == null) {
+            long num;
+            if (streamNumber != null) {
+                num = streamNumber;
+            } else if (getName() != null) {
+                num = getName().hashCode();
+            } else {
+                num = getEntityNumber();
+            }
+            randomStream = new RandomStream(RandomStream.getModelSeed(), num);
+        }
+        return randomStream;
     }
 
     /**
@@ -79,8 +120,12 @@ public class LinkedComponent extends StateEntity {
      * @param ent
      */
     protected void registerEntity(Entity ent) {
+        if (ent.isDead()) {
+            error("Entity %s has been killed or released to an entity pool", ent.getName());
+        }
         receivedEntity = ent;
         numberAdded++;
+        this.markStatisticsDirty();
     }
 
     /**
@@ -96,10 +141,20 @@ public class LinkedComponent extends StateEntity {
      * @param entity
      */
     public void sendToNextComponent(Entity entity) {
+        this.sendToComponent(entity, nextComponent);
+    }
+
+    /**
+     * 将指定实体传送给指定的组件，用于有多个下游组件的组件
+     * @param entity
+     * @param next 下游组件，为null时只累加 numberProcessed
+     */
+    protected void sendToComponent(Entity entity, LinkedComponent next) {
         numberProcessed++;
+        this.markStatisticsDirty();
         releaseTime = this.getSimTime();
-        if (nextComponent != null) {
-            nextComponent.addEntity(entity);
+        if (next != null) {
+            next.addEntity(entity);
         }
     }
 
@@ -108,41 +163,218 @@ public class LinkedComponent extends StateEntity {
      */
     public void incrementNumberProcessed() {
         numberProcessed++;
+        this.markStatisticsDirty();
     }
 
     // *****************************
     //  统计相关数据
     // *****************************
 
+    /**
+     * 统计量在 samplingPolicies 和 series 数组中的下标
+     */
+    private static final int NUM_ADDED = 0;
+    private static final int NUM_PROCESSED = 1;
+    private static final int NUM_IN_PROGRESS = 2;
+    private static final String[] METRIC_NAMES = {DesSim.NumberAdded, DesSim.NumberProcessed, DesSim.NumberInProgress};
+
+    /**
+     * 采样事件的优先级，排在同一时刻的其他事件之后，记录该时刻结束时的数据
+     */
+    private static final int SAMPLE_PRIORITY = 100;
+
+    /**
+     * 各统计量的采样策略
+     */
+    private final SamplingPolicy[] samplingPolicies = {
+            SamplingPolicy.EVERY_ADVANCE, SamplingPolicy.EVERY_ADVANCE, SamplingPolicy.EVERY_ADVANCE};
+
+    /**
+     * 记录统计数据所用的仓库，即最近一次记录统计数据的 EventManager 所持有的仓库
+     */
+    private StatisticsStore statisticsStore;
+
+    /**
+     * 各统计量的时间序列，按 EVERY_ADVANCE 策略时只在数据发生变化的时间点记录，未变化的时间点沿用上一次的值
+     */
+    private final TimeSeries[] series = new TimeSeries[METRIC_NAMES.length];
+
+    /**
+     * 初始化的次数，采样事件只在调度它的那次运行中继续调度下一次采样
+     */
+    private int samplingRun;
+
+    /**
+     * 设置指定统计量的采样策略，应在模型初始化之前设置
+     * @param metric 统计量名称，如 DesSim.NumberAdded
+     * @param policy 采样策略
+     */
+    public void setSamplingPolicy(String metric, SamplingPolicy policy) {
+        int index = metricIndex(metric);
+        samplingPolicies[index] = policy;
+        replaceSeries(index);
+    }
+
+    /**
+     * 设置所有统计量的采样策略，应在模型初始化之前设置
+     * @param policy 采样策略
+     */
+    public void setSamplingPolicy(SamplingPolicy policy) {
+        for (int i = 0; i < samplingPolicies.length; i++) {
+            samplingPolicies[i] = policy;
+            replaceSeries(i);
+        }
+    }
 
-    protected Map<Double, Long> numAddMap = new LinkedHashMap<>();
+    /**
+     * 按新的采样策略重新创建指定统计量的时间序列，并从仓库中移除原来的序列
+     * 尚未记录过统计数据时，在第一次记录时创建
+     * @param metric 统计量的下标
+     */
+    private void replaceSeries(int metric) {
+        if (statisticsStore == null) {
+            return;
+        }
+        statisticsStore.removeSeries(series[metric]);
+        series[metric] = statisticsStore.createSeries(getName() + "." + METRIC_NAMES[metric], samplingPolicies[metric]);
+    }
 
-    protected Map<Double, Long> numProcessedMap = new LinkedHashMap<>();
+    public SamplingPolicy getSamplingPolicy(String metric) {
+        return samplingPolicies[metricIndex(metric)];
+    }
+
+    private int metricIndex(String metric) {
+        for (int i = 0; i < METRIC_NAMES.length; i++) {
+            if (METRIC_NAMES[i].equals(metric)) {
+                return i;
+            }
+        }
+        error("Unknown statistic: %s", metric);
+        return -1;
+    }
 
-    protected Map<Double, Long> numInProgressMap = new LinkedHashMap<>();
+    private long getStatisticValue(int metric) {
+        switch (metric) {
+            case NUM_ADDED:
+                return getNumberAdded();
+            case NUM_PROCESSED:
+                return getNumberProcessed();
+            default:
+                return getNumberInProgress();
+        }
+    }
 
     /**
-     * 返回numAdd各时钟序列所对应的值
+     * 返回numAdd各时钟序列所对应的值（只读视图）
      * @return
      */
     public List<Long> getNumAddList() {
-        return new ArrayList<>(numAddMap.values());
+        return getValueList(series[NUM_ADDED]);
     }
 
     /**
-     * 返回numProcess各时钟序列所对应的值
+     * 返回numProcess各时钟序列所对应的值（只读视图）
      * @return
      */
     public List<Long> getNumProcessedList() {
-        return new ArrayList<>(numProcessedMap.values());
+        return getValueList(series[NUM_PROCESSED]);
     }
 
     /**
-     * 返回numInProcess各时钟序列所对应的值
+     * 返回numInProcess各时钟序列所对应的值（只读视图）
      * @return
      */
     public List<Long> getNumInProgressList() {
-        return new ArrayList<>(numInProgressMap.values());
+        return getValueList(series[NUM_IN_PROGRESS]);
+    }
+
+    /**
+     * 返回指定统计量的数据（只读视图）
+     * @param metric 统计量名称，如 DesSim.NumberAdded
+     * @return
+     */
+    public List<Long> getDataList(String metric) {
+        return getValueList(series[metricIndex(metric)]);
+    }
+
+    /**
+     * 返回指定统计量各数据对应的时间（只读视图）
+     * 按 EVERY_ADVANCE 策略采样时与 EventManager 的时钟序列相同
+     * @param metric 统计量名称，如 DesSim.NumberAdded
+     * @return
+     */
+    public List<Double> getTimeList(String metric) {
+        TimeSeries ts = series[metricIndex(metric)];
+        if (ts == null) {
+            return Collections.emptyList();
+        }
+        return ts.getTimeList();
+    }
+
+    private static List<Long> getValueList(TimeSeries ts) {
+        if (ts == null) {
+            return Collections.emptyList();
+        }
+        return ts.getValueList();
+    }
+
+    /**
+     * 确保该组件的时间序列创建在当前 EventManager 的统计数据仓库中
+     */
+    private void bindStatisticsStore() {
+        StatisticsStore store = EventManager.current().getStatisticsStore();
+        if (store == statisticsStore) {
+            return;
+        }
+        if (statisticsStore != null) {
+            for (TimeSeries each : series) {
+                statisticsStore.removeSeries(each);
+            }
+        }
+        statisticsStore = store;
+        for (int i = 0; i < series.length; i++) {
+            series[i] = store.createSeries(getName() + "." + METRIC_NAMES[i], samplingPolicies[i]);
+        }
+    }
+
+    /**
+     * 按固定间隔采样指定的统计量，并调度下一次采样
+     * 组件被重新初始化或者采样策略不再是 FixedInterval 时，采样停止
+     * (相当于命令模式中的接收者，是真正执行命令操作的功能代码)
+     * @param metric 统计量的下标
+     * @param run 调度该采样事件时的初始化次数
+     */
+    void sampleStatistics(int metric, int run) {
+        if (run != samplingRun || samplingPolicies[metric].getType() != SamplingPolicy.Type.FixedInterval) {
+            return;
+        }
+        this.bindStatisticsStore();
+        series[metric].record(getSimTime(), getStatisticValue(metric));
+        this.scheduleProcess(samplingPolicies[metric].getInterval(), SAMPLE_PRIORITY, new SampleStatisticsTarget(this, metric, run));
+    }
+
+    /**
+     * 命令模式中的 ConcreteCommand, 用于执行 LinkedComponent 的 sampleStatistics()
+     */
+    private static class SampleStatisticsTarget extends EntityTarget<LinkedComponent> {
+        private final int metric;
+        private final int run;
+
+        SampleStatisticsTarget(LinkedComponent ent, int metric, int run) {
+            super(ent, "sampleStatistics");
+            this.metric = metric;
+            this.run = run;
+        }
+
+        @Override
+        public void process() {
+            entity.sampleStatistics(metric, run);
+        }
+
+        @Override
+        public boolean isBackground() {
+            return true;
+        }
     }
 
     /**
@@ -169,6 +401,38 @@ public class LinkedComponent extends StateEntity {
         return initialNumberAdded + numberAdded - initialNumberProcessed - numberProcessed;
     }
 
+    /**
+     * 返回截至指定时刻，组件中各服务通道的平均利用率
+     * 只有一个通道的组件等于 getUtilisation()，多通道组件按各通道分别统计后取平均
+     * @param simTicks 当前仿真时刻
+     * @return
+     */
+    public double getAverageUtilisation(long simTicks) {
+        return getUtilisation(simTicks);
+    }
+
+    @Override
+    public void startUp() {
+        super.startUp();
+        // 为按固定间隔采样的统计量启动采样事件
+        for (int i = 0; i < samplingPolicies.length; i++) {
+            if (samplingPolicies[i].getType() == SamplingPolicy.Type.FixedInterval) {
+                this.scheduleProcess(0, SAMPLE_PRIORITY, new SampleStatisticsTarget(this, i, samplingRun));
+            }
+        }
+    }
+
+    @Override
+    public void updateStatistics() {
+        this.bindStatisticsStore();
+        double simTime = getSimTime();
+        for (int i = 0; i < series.length; i++) {
+            if (samplingPolicies[i].isRecordedOnAdvance()) {
+                series[i].record(simTime, getStatisticValue(i));
+            }
+        }
+    }
+
     @Override
     public void clearStatistics() {
         super.clearStatistics();
@@ -176,6 +440,8 @@ public class LinkedComponent extends StateEntity {
         initialNumberProcessed = numberProcessed;
         numberAdded = 0;
         numberProcessed = 0;
+        // 仓库中的数据由 EventManager 统一清空，清空后的第一个时间点需要重新记录当前值
+        this.markStatisticsDirty();
     }
 
     /**
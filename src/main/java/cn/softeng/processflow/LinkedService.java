@@ -5,6 +5,7 @@ import cn.softeng.basicsim.EntityTarget;
 import cn.softeng.events.EventHandle;
 import cn.softeng.events.EventManager;
 import cn.softeng.events.ProcessTarget;
+import cn.softeng.states.StateRecord;
 import lombok.Setter;
 
 
@@ -35,20 +36,35 @@ public class LinkedService extends LinkedComponent implements QueueUser {
     /**
      * 用于持有endActions事件的引用
      */
-    private final EventHandle endActionHandle = new EventHandle();
+    private EventHandle endActionHandle = new EventHandle();
+
+    /**
+     * 在 waitQueue 定向分派中的编号，由 Queue 初始化时分配
+     */
+    int dispatchIndex = -1;
 
     {
         this.waitQueue = null;
     }
 
+    /**
+     * 工作和空闲状态的记录，初始化时解析一次，状态切换时直接使用
+     */
+    private StateRecord workingState;
+    private StateRecord idleState;
+
     @Override
     public void earlyInit() {
         super.earlyInit();
+        workingState = this.getState("Working");
+        idleState = this.getState("Idle");
         this.setBusy(false);
         startTime = 0;
         duration = 0;
         processKilled = false;
         stopWorkTime = 0;
+        // 上一次运行的事件可能仍留在其他 EventManager 中，重新初始化时换用新的句柄
+        endActionHandle = new EventHandle();
     }
 
     @Override
@@ -68,6 +84,14 @@ public class LinkedService extends LinkedComponent implements QueueUser {
         waitQueue.addEntity(entity);
     }
 
+    /**
+     * 根据是否正在处理实体，切换到工作或空闲状态
+     */
+    @Override
+    public void setPresentState() {
+        this.setPresentState(isBusy() ? workingState : idleState);
+    }
+
     protected final boolean isBusy() {
         return busy;
     }
@@ -81,6 +105,10 @@ public class LinkedService extends LinkedComponent implements QueueUser {
             stopWorkTime = this.getSimTime();
         }
         busy = bool;
+        // 向队列报告忙闲状态，用于定向分派
+        if (waitQueue != null) {
+            waitQueue.setServiceIdle(this, !bool);
+        }
     }
 
     protected double getStopWorkTime() {
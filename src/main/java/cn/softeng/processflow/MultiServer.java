@@ -0,0 +1,375 @@
+package cn.softeng.processflow;
+
+import cn.softeng.basicsim.Entity;
+import cn.softeng.basicsim.EntityTarget;
+import cn.softeng.events.EventHandle;
+import cn.softeng.events.EventManager;
+import cn.softeng.states.StateRecord;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.BitSet;
+
+/**
+ * 多通道服务：一个组件中有 capacity 个相同的服务台，同时从队列中取出多个实体处理
+ * 每个服务台是一个槽位，服务完成时刻保存在组件内部的小根堆中，
+ * 事件管理器中始终只有一个最早完成时刻对应的事件
+ * 只要有一个服务台在工作，组件就处于工作状态；每个服务台的利用率单独统计
+ * 服务时间的选择与 Server 相同；有空闲服务台时组件视为空闲，队列定向分派时与 Server 一样参与选择
+ * @date: 10/18/2026 10:40 PM
+ */
+@Slf4j
+public class MultiServer extends AbstractServer {
+    /**
+     * 服务台的数目，在初始化时生效，运行期间修改要到下一次初始化才会改变服务台数目
+     */
+    @Setter
+    @Getter
+    private int capacity;
+
+    /**
+     * 每个槽位正在服务的实体，空闲时为null，数组长度即本次运行的服务台数目
+     */
+    private Entity[] slotEntities;
+
+    /**
+     * 每个槽位的服务完成时刻与开始时刻（ticks）
+     */
+    private long[] slotEndTicks;
+    private long[] slotStartTicks;
+
+    /**
+     * 每个槽位已完成的服务累计的时间（ticks），不包括正在进行的服务
+     */
+    private long[] slotBusyTicks;
+
+    /**
+     * 每个槽位开始服务的顺序号，完成时刻相同时先开始的先完成
+     */
+    private long[] slotSequence;
+    private long sequence;
+
+    /**
+     * 空闲的槽位，总是使用编号最小的空闲槽位
+     */
+    private final BitSet freeSlots;
+    private int busyCount;
+
+    /**
+     * 按完成时刻排列的忙碌槽位组成的小根堆
+     */
+    private int[] heap;
+    private int heapSize;
+
+    /**
+     * 开始统计服务台时间的时刻
+     */
+    private long lastStatisticsTick;
+
+    private final CompletionTarget completionTarget = new CompletionTarget(this);
+    private EventHandle completionHandle = new EventHandle();
+
+    /**
+     * 已调度的完成事件的时刻（ticks）
+     */
+    private long scheduledTick;
+
+    private StateRecord workingState;
+    private StateRecord idleState;
+
+    {
+        capacity = 1;
+        freeSlots = new BitSet();
+    }
+
+    public MultiServer() {}
+
+    public MultiServer(String name) {
+        setName(name);
+    }
+
+    public MultiServer(Integer id) {
+        setName(String.valueOf(id));
+    }
+
+    @Override
+    public void earlyInit() {
+        super.earlyInit();
+        if (capacity < 1) {
+            error("Capacity must be at least 1: %d", capacity);
+        }
+        workingState = this.getState("Working");
+        idleState = this.getState("Idle");
+
+        slotEntities = new Entity[capacity];
+        slotEndTicks = new long[capacity];
+        slotStartTicks = new long[capacity];
+        slotBusyTicks = new long[capacity];
+        slotSequence = new long[capacity];
+        heap = new int[capacity];
+        heapSize = 0;
+        sequence = 0;
+        freeSlots.clear();
+        freeSlots.set(0, capacity);
+        busyCount = 0;
+        lastStatisticsTick = 0;
+        if (EventManager.hasCurrent()) {
+            lastStatisticsTick = getSimTicks();
+        }
+        // 上一次运行的事件可能仍留在其他 EventManager 中，重新初始化时换用新的句柄
+        completionHandle = new EventHandle();
+    }
+
+    @Override
+    public void addEntity(Entity entity) {
+        // 若该组件的入口没有队列，则直接在空闲的服务台处理实体
+        if (waitQueue == null) {
+            if (busyCount == slotEntities.length) {
+                error("All %d servers are busy, an entity cannot be accepted without a queue.", slotEntities.length);
+            }
+            this.registerEntity(entity);
+            startService(entity);
+            scheduleCompletion();
+            return;
+        }
+
+        // 向该组件的入口的Queue中添加实体
+        waitQueue.addEntity(entity);
+    }
+
+    /**
+     * 当该组件用到的队列改变时触发，用空闲的服务台处理队列中的实体
+     */
+    @Override
+    public void queueChanged() {
+        fillFromQueue();
+        scheduleCompletion();
+    }
+
+    @Override
+    public void setPresentState() {
+        this.setPresentState(busyCount > 0 ? workingState : idleState);
+    }
+
+    /**
+     * 有空闲的服务台时视为空闲
+     * @return
+     */
+    @Override
+    public boolean isIdle() {
+        return slotEntities == null || busyCount < slotEntities.length;
+    }
+
+    /**
+     * 服务台忙闲变化后，向队列报告是否还有空闲的服务台，用于定向分派
+     */
+    private void reportIdle() {
+        if (waitQueue != null) {
+            waitQueue.setServiceIdle(this, isIdle());
+        }
+    }
+
+    // *****************************
+    // 处理实体
+    // *****************************
+
+    /**
+     * 从队列中取出实体，直到服务台全部忙碌或队列为空
+     */
+    private void fillFromQueue() {
+        if (waitQueue == null) {
+            return;
+        }
+        while (busyCount < slotEntities.length && !waitQueue.isEmpty()) {
+            startService(this.getNextEntityFromQueue());
+        }
+        reportIdle();
+    }
+
+    /**
+     * 在编号最小的空闲服务台上开始服务
+     * @param entity
+     */
+    private void startService(Entity entity) {
+        int slot = freeSlots.nextSetBit(0);
+        freeSlots.clear(slot);
+        busyCount++;
+
+        long simTicks = getSimTicks();
+        long duration = EventManager.current().secondsToNearestTick(getServiceTime(entity));
+        slotEntities[slot] = entity;
+        slotStartTicks[slot] = simTicks;
+        slotEndTicks[slot] = simTicks + duration;
+        slotSequence[slot] = sequence++;
+        heapPush(slot);
+        this.setPresentState();
+    }
+
+    /**
+     * 为最早的完成时刻调度事件，已调度的事件不是最早完成时刻时重新调度
+     */
+    private void scheduleCompletion() {
+        if (heapSize == 0) {
+            return;
+        }
+        long endTick = slotEndTicks[heap[0]];
+        if (completionHandle.isScheduled()) {
+            if (scheduledTick == endTick) {
+                return;
+            }
+            EventManager.killEvent(completionHandle);
+        }
+        scheduledTick = endTick;
+        this.scheduleProcessTicks(endTick - getSimTicks(), 5, true, completionTarget, completionHandle);
+    }
+
+    /**
+     * 完成所有到期的服务，然后处理队列中的实体
+     * (相当于命令模式中的接收者，是真正执行命令操作的功能代码)
+     */
+    void completionAction() {
+        long simTicks = getSimTicks();
+        while (heapSize > 0 && slotEndTicks[heap[0]] <= simTicks) {
+            int slot = heapPop();
+            Entity entity = slotEntities[slot];
+            slotEntities[slot] = null;
+            slotBusyTicks[slot] += simTicks - slotStartTicks[slot];
+            freeSlots.set(slot);
+            busyCount--;
+            // 将实体发送到链中的下一个组件
+            this.sendToNextComponent(entity);
+        }
+        fillFromQueue();
+        this.setPresentState();
+        scheduleCompletion();
+    }
+
+    /**
+     * 命令模式中的 ConcreteCommand, 用于执行 MultiServer 的 completionAction()
+     */
+    private static class CompletionTarget extends EntityTarget<MultiServer> {
+        CompletionTarget(MultiServer ent) {
+            super(ent, "completionAction");
+        }
+
+        @Override
+        public void process() {
+            entity.completionAction();
+        }
+    }
+
+    // *****************************
+    // 完成时刻小根堆
+    // *****************************
+
+    private boolean before(int a, int b) {
+        if (slotEndTicks[a] != slotEndTicks[b]) {
+            return slotEndTicks[a] < slotEndTicks[b];
+        }
+        return slotSequence[a] < slotSequence[b];
+    }
+
+    private void heapPush(int slot) {
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!before(slot, heap[parent])) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = slot;
+    }
+
+    private int heapPop() {
+        int ret = heap[0];
+        int last = heap[--heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && before(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!before(heap[child], last)) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return ret;
+    }
+
+    // *****************************
+    // 统计
+    // *****************************
+
+    /**
+     * 正在服务的实体数
+     * @return
+     */
+    public int getBusyCount() {
+        return busyCount;
+    }
+
+    /**
+     * 返回截至指定时刻，指定服务台的利用率
+     * @param slot 服务台编号，从0开始
+     * @param simTicks 当前仿真时刻
+     * @return 尚未初始化或统计时间为0时返回0
+     */
+    public double getSlotUtilisation(int slot, long simTicks) {
+        long total = simTicks - lastStatisticsTick;
+        if (slotBusyTicks == null || total <= 0) {
+            return 0.0;
+        }
+        return (double) getSlotBusyTicks(slot, simTicks) / total;
+    }
+
+    /**
+     * 返回截至指定时刻，所有服务台的平均利用率
+     * @param simTicks 当前仿真时刻
+     * 与 getUtilisation() 不同，后者是任一服务台在工作的时间比例
+     * @return 尚未初始化时返回0
+     */
+    @Override
+    public double getAverageUtilisation(long simTicks) {
+        if (slotBusyTicks == null) {
+            return 0.0;
+        }
+        double ret = 0.0;
+        for (int i = 0; i < slotBusyTicks.length; i++) {
+            ret += getSlotUtilisation(i, simTicks);
+        }
+        return ret / slotBusyTicks.length;
+    }
+
+    private long getSlotBusyTicks(int slot, long simTicks) {
+        long ret = slotBusyTicks[slot];
+        if (slotEntities[slot] != null) {
+            ret += simTicks - slotStartTicks[slot];
+        }
+        return ret;
+    }
+
+    @Override
+    public void clearStatistics() {
+        super.clearStatistics();
+        if (slotBusyTicks == null) {
+            return;
+        }
+        long simTicks = getSimTicks();
+        for (int i = 0; i < slotBusyTicks.length; i++) {
+            slotBusyTicks[i] = 0;
+            if (slotEntities[i] != null) {
+                slotStartTicks[i] = simTicks;
+            }
+        }
+        lastStatisticsTick = simTicks;
+    }
+}
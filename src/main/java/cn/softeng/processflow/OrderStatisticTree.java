@@ -0,0 +1,233 @@
+package cn.softeng.processflow;
+
+import java.util.NoSuchElementException;
+
+/**
+ * 顺序统计树：每个结点记录子树的大小的 AVL 树
+ * 插入、删除、按元素查询排名、按排名查询元素均为 O(log n)
+ * 元素之间通过 compareTo 比较，不允许重复元素
+ * @date: 10/18/2026 9:00 PM
+ */
+final class OrderStatisticTree<T extends Comparable<T>> {
+
+    private static final class Node<T> {
+        final T key;
+        Node<T> left;
+        Node<T> right;
+        int height;
+        int size;
+
+        Node(T key) {
+            this.key = key;
+            height = 1;
+            size = 1;
+        }
+    }
+
+    private Node<T> root;
+
+    /**
+     * 最近一次 add/remove 是否改变了树
+     */
+    private boolean modified;
+
+    /**
+     * 添加元素
+     * @param key
+     * @return 元素已存在时返回false
+     */
+    boolean add(T key) {
+        modified = false;
+        root = insert(root, key);
+        return modified;
+    }
+
+    /**
+     * 删除元素
+     * @param key
+     * @return 元素不存在时返回false
+     */
+    boolean remove(T key) {
+        modified = false;
+        root = delete(root, key);
+        return modified;
+    }
+
+    /**
+     * 返回最小的元素
+     * @return
+     */
+    T first() {
+        if (root == null) {
+            throw new NoSuchElementException();
+        }
+        Node<T> n = root;
+        while (n.left != null) {
+            n = n.left;
+        }
+        return n.key;
+    }
+
+    /**
+     * 返回指定元素的排名（从0开始）
+     * @param key
+     * @return 元素不存在时返回-1
+     */
+    int rank(T key) {
+        int ret = 0;
+        Node<T> n = root;
+        while (n != null) {
+            int cmp = key.compareTo(n.key);
+            if (cmp < 0) {
+                n = n.left;
+            } else if (cmp > 0) {
+                ret += size(n.left) + 1;
+                n = n.right;
+            } else {
+                return ret + size(n.left);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 返回指定排名的元素
+     * @param index 排名，从0开始
+     * @return
+     */
+    T get(int index) {
+        if (index < 0 || index >= size(root)) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        Node<T> n = root;
+        while (true) {
+            int leftSize = size(n.left);
+            if (index < leftSize) {
+                n = n.left;
+            } else if (index > leftSize) {
+                index -= leftSize + 1;
+                n = n.right;
+            } else {
+                return n.key;
+            }
+        }
+    }
+
+    int size() {
+        return size(root);
+    }
+
+    boolean isEmpty() {
+        return root == null;
+    }
+
+    void clear() {
+        root = null;
+    }
+
+    // ***********************************************************
+    // AVL 树操作
+    // ***********************************************************
+
+    private Node<T> insert(Node<T> n, T key) {
+        if (n == null) {
+            modified = true;
+            return new Node<>(key);
+        }
+        int cmp = key.compareTo(n.key);
+        if (cmp < 0) {
+            n.left = insert(n.left, key);
+        } else if (cmp > 0) {
+            n.right = insert(n.right, key);
+        } else {
+            return n;
+        }
+        return balance(n);
+    }
+
+    private Node<T> delete(Node<T> n, T key) {
+        if (n == null) {
+            return null;
+        }
+        int cmp = key.compareTo(n.key);
+        if (cmp < 0) {
+            n.left = delete(n.left, key);
+        } else if (cmp > 0) {
+            n.right = delete(n.right, key);
+        } else {
+            modified = true;
+            if (n.left == null) {
+                return n.right;
+            }
+            if (n.right == null) {
+                return n.left;
+            }
+            // 用右子树中的最小结点代替被删除的结点
+            Node<T> min = n.right;
+            while (min.left != null) {
+                min = min.left;
+            }
+            min.right = deleteMin(n.right);
+            min.left = n.left;
+            n = min;
+        }
+        return balance(n);
+    }
+
+    private Node<T> deleteMin(Node<T> n) {
+        if (n.left == null) {
+            return n.right;
+        }
+        n.left = deleteMin(n.left);
+        return balance(n);
+    }
+
+    private Node<T> balance(Node<T> n) {
+        update(n);
+        int bf = height(n.left) - height(n.right);
+        if (bf > 1) {
+            if (height(n.left.left) < height(n.left.right)) {
+                n.left = rotateLeft(n.left);
+            }
+            return rotateRight(n);
+        }
+        if (bf < -1) {
+            if (height(n.right.right) < height(n.right.left)) {
+                n.right = rotateRight(n.right);
+            }
+            return rotateLeft(n);
+        }
+        return n;
+    }
+
+    private Node<T> rotateLeft(Node<T> n) {
+        Node<T> r = n.right;
+        n.right = r.left;
+        r.left = n;
+        update(n);
+        update(r);
+        return r;
+    }
+
+    private Node<T> rotateRight(Node<T> n) {
+        Node<T> l = n.left;
+        n.left = l.right;
+        l.right = n;
+        update(n);
+        update(l);
+        return l;
+    }
+
+    private static <T> void update(Node<T> n) {
+        n.height = Math.max(height(n.left), height(n.right)) + 1;
+        n.size = size(n.left) + size(n.right) + 1;
+    }
+
+    private static <T> int height(Node<T> n) {
+        return n == null ? 0 : n.height;
+    }
+
+    private static <T> int size(Node<T> n) {
+        return n == null ? 0 : n.size;
+    }
+}
@@ -5,12 +5,16 @@ import cn.softeng.basicsim.EntityTarget;
 import cn.softeng.events.EventHandle;
 import cn.softeng.events.EventManager;
 import cn.softeng.events.ProcessTarget;
+import cn.softeng.statistics.Histogram;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.TreeSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.NoSuchElementException;
 
 /**
  * 队列组件,用于实体排队
@@ -51,15 +55,80 @@ public class Queue extends LinkedComponent {
 
     /**
      * 队列中所有实体的集合，每个实体连同其的入队时间、优先级等信息被封装成一个QueueEntry
-     * 集合中的entry按照指定的优先级排序
+     * 集合中的entry按照指定的优先级排序，可以在 O(log n) 时间内查询entry的排队位置
      */
-    private final TreeSet<QueueEntry> itemSet;
+    private final OrderStatisticTree<QueueEntry> itemSet;
+
+    /**
+     * 实体到其QueueEntry的映射，用于 O(1) 查找实体对应的entry
+     */
+    private final IdentityHashMap<Entity, QueueEntry> entryMap;
+
+    /**
+     * 队列中所有实体的优先级和排队方式都相同时（通常如此），实体保存在环形缓冲区中，入队出队不分配对象；
+     * 有不同优先级或排队方式的实体入队时，将缓冲区中的实体转移到 itemSet 中，直到队列再次为空
+     */
+    private boolean ringMode;
+    private Entity[] ringEntities;
+    private long[] ringTicksAdded;
+    private long[] ringRenegeTicks;
+    private int ringHead;
+    private int ringSize;
+
+    /**
+     * 环形缓冲区中每个实体的入队序号，序号随入队顺序递增
+     * 缓冲区只从两端移除实体，其中的序号总是连续的，实体的排队位置等于其序号与队首实体序号之差
+     */
+    private long[] ringSequences;
+    private long ringNextSequence;
+
+    /**
+     * 实体到其入队序号的映射，首次查询排队位置时才建立，之后随入队出队维护，缓冲区清空时丢弃，
+     * 不查询排队位置的队列入队出队仍不分配对象，偶尔查询一次的队列也只在清空之前维护映射
+     */
+    private IdentityHashMap<Entity, Long> ringSequenceMap;
+
+    /**
+     * 环形缓冲区中实体的优先级和排队方式
+     */
+    private int ringPriority;
+    private boolean ringFifo;
+
+    /**
+     * 等待违约检查的entry，按入队顺序排列；对于固定的违约时间，违约时刻随入队顺序单调递增
+     * 已离开队列的entry在到达表头时被丢弃
+     */
+    private final ArrayDeque<QueueEntry> renegeList;
 
     /**
      * 该Queue组件的使用者
      */
     private final ArrayList<QueueUser> userList;
 
+    /**
+     * 有新实体加入时通知使用者的方式，默认通知所有使用者
+     */
+    @Setter
+    private DispatchPolicy dispatchPolicy;
+
+    /**
+     * 定向分派时，使用该队列的 LinkedService 及其中处于空闲状态的编号
+     * 其他类型的使用者仍会在每次队列变化时收到通知
+     */
+    private LinkedService[] services;
+    private final BitSet idleServices;
+    private final ArrayList<QueueUser> otherUsers;
+
+    /**
+     * 本轮分派中已通知过但没有取走实体的服务，避免重复通知
+     */
+    private final BitSet skippedServices;
+
+    /**
+     * 最近一次分派到的服务编号，用于轮流选择
+     */
+    private int lastDispatched;
+
     // ***********************************************************
     // 数据统计相关变量
     // ***********************************************************
@@ -71,11 +140,22 @@ public class Queue extends LinkedComponent {
     protected double elementSeconds;               // 所有实体在队列中花费的总时间
     protected long numberReneged;                  // 等待超时的实体数目
 
+    /**
+     * 离开队列的实体的等待时间（ticks）分布
+     */
+    private final Histogram queueTimes = new Histogram();
+
     /**
      * 相当于命令模式中的客户端，创建命令对象(userUpdate)并设定它的接收者(this)
      */
     private final DoQueueChanged userUpdate = new DoQueueChanged(this);
-    private final EventHandle userUpdateHandle = new EventHandle();
+    private EventHandle userUpdateHandle = new EventHandle();
+
+    /**
+     * 违约检查只保留一个待执行的事件，对应 renegeList 表头entry的违约时刻
+     */
+    private final RenegeActionTarget renegeActionTarget = new RenegeActionTarget(this);
+    private EventHandle renegeActionHandle = new EventHandle();
 
     {
         // 初始化默认优先级
@@ -93,23 +173,35 @@ public class Queue extends LinkedComponent {
         // 初始化超时实体的去向
         this.renegeDestination = null;
 
+        // 初始化分派方式
+        this.dispatchPolicy = DispatchPolicy.Broadcast;
+
     }
 
     public Queue() {
-        itemSet = new TreeSet<>();
+        itemSet = new OrderStatisticTree<>();
+        entryMap = new IdentityHashMap<>();
+        renegeList = new ArrayDeque<>();
         userList = new ArrayList<>();
+        services = new LinkedService[0];
+        idleServices = new BitSet();
+        otherUsers = new ArrayList<>();
+        skippedServices = new BitSet();
+        ringMode = true;
+        ringEntities = new Entity[16];
+        ringTicksAdded = new long[16];
+        ringRenegeTicks = new long[16];
+        ringSequences = new long[16];
     }
 
     public Queue(String name) {
+        this();
         setName(name);
-        itemSet = new TreeSet<>();
-        userList = new ArrayList<>();
     }
 
     public Queue(Integer id) {
+        this();
         setName(String.valueOf(id));
-        itemSet = new TreeSet<>();
-        userList = new ArrayList<>();
     }
 
     @Override
@@ -118,18 +210,33 @@ public class Queue extends LinkedComponent {
 
         // 清空队列中的实体
         itemSet.clear();
+        entryMap.clear();
+        renegeList.clear();
+        Arrays.fill(ringEntities, null);
+        ringHead = 0;
+        ringSize = 0;
+        ringMode = true;
+        ringNextSequence = 0;
+        ringSequenceMap = null;
+        // 上一次运行的事件可能仍留在其他 EventManager 中，重新初始化时换用新的句柄
+        userUpdateHandle = new EventHandle();
+        renegeActionHandle = new EventHandle();
 
         // 清空统计数据
         timeOfLastUpdate = 0.0;
-        startOfStatisticsCollection = 0.0;
-        minElements = 0;
-        maxElements = 0;
+        if (EventManager.hasCurrent()) {
+            timeOfLastUpdate = getSimTime();
+        }
+        startOfStatisticsCollection = timeOfLastUpdate;
+        minElements = getCount();
+        maxElements = getCount();
         elementSeconds = 0.0;
         numberReneged = 0;
+        queueTimes.clear();
 
-        // 识别使用该Queue的对象
+        // 识别使用该Queue的对象，只需遍历组件，不必访问流经系统的临时实体
         userList.clear();
-        for (Entity each : Entity.getClonesOfIterable(Entity.class)) {
+        for (LinkedComponent each : Entity.getClonesOfIterable(LinkedComponent.class)) {
             if (each instanceof QueueUser) {
                 QueueUser u = (QueueUser) each;
                 if (u.getQueues().contains(this)) {
@@ -137,6 +244,36 @@ public class Queue extends LinkedComponent {
                 }
             }
         }
+
+        // 为定向分派建立服务编号，服务的忙闲状态由 LinkedService 在切换时报告
+        ArrayList<LinkedService> list = new ArrayList<>();
+        otherUsers.clear();
+        for (QueueUser each : userList) {
+            if (each instanceof LinkedService) {
+                LinkedService service = (LinkedService) each;
+                service.dispatchIndex = list.size();
+                list.add(service);
+            } else {
+                otherUsers.add(each);
+            }
+        }
+        services = list.toArray(new LinkedService[0]);
+        idleServices.clear();
+        idleServices.set(0, services.length);
+        lastDispatched = -1;
+    }
+
+    /**
+     * 由使用该队列的 LinkedService 在忙闲状态切换时调用
+     * @param service
+     * @param idle
+     */
+    void setServiceIdle(LinkedService service, boolean idle) {
+        int index = service.dispatchIndex;
+        if (index < 0 || index >= services.length || services[index] != service) {
+            return;
+        }
+        idleServices.set(index, idle);
     }
 
     /**
@@ -147,13 +284,21 @@ public class Queue extends LinkedComponent {
         final Entity entity;
         final long entryNum;
         final int priority;
-        final double timeAdded;
+        /**
+         * 入队时刻（ticks）
+         */
+        final long ticksAdded;
+        /**
+         * 违约时刻（ticks），不考虑违约时为 Long.MAX_VALUE
+         */
+        final long renegeTick;
 
-        public QueueEntry(Entity ent, long num, int pri, double time) {
+        public QueueEntry(Entity ent, long num, int pri, long ticks, long renege) {
             entity = ent;
             entryNum = num;
             priority = pri;
-            timeAdded = time;
+            ticksAdded = ticks;
+            renegeTick = renege;
         }
 
         @Override
@@ -178,31 +323,51 @@ public class Queue extends LinkedComponent {
      * @return
      */
     private QueueEntry getQueueEntry(Entity ent) {
-        Iterator<QueueEntry> itr = itemSet.iterator();
-        while (itr.hasNext()) {
-            QueueEntry entry = itr.next();
-            if (entry.entity == ent) {
-                return entry;
-            }
-        }
-        return null;
+        return entryMap.get(ent);
     }
 
     /**
      * 获取指定实体在队列中排队的位置
+     * 使用环形缓冲区时由入队序号在 O(1) 时间内得到，使用有序集合时为 O(log n)
      * @param entity
-     * @return
+     * @return 实体不在队列中时返回-1
      */
     public int getPosition(Entity entity) {
-        int ret = 0;
-        Iterator<QueueEntry> itr = itemSet.iterator();
-        while (itr.hasNext()) {
-            if (itr.next().entity == entity) {
-                return ret;
+        if (ringMode) {
+            if (ringSize == 0) {
+                return -1;
+            }
+            if (ringSequenceMap == null) {
+                buildRingSequenceMap();
             }
-            ret++;
+            Long seq = ringSequenceMap.get(entity);
+            if (seq == null) {
+                return -1;
+            }
+            // FIFO 时队首是最早入队的实体，LIFO 时队首是最晚入队的实体
+            long headSeq = ringSequences[ringHead];
+            return (int) (ringFifo ? seq - headSeq : headSeq - seq);
+        }
+        QueueEntry entry = entryMap.get(entity);
+        if (entry == null) {
+            return -1;
         }
-        return -1;
+        return itemSet.rank(entry);
+    }
+
+    /**
+     * 返回队列中指定位置的实体
+     * @param position 排队位置，从0开始
+     * @return
+     */
+    public Entity getEntity(int position) {
+        if (ringMode) {
+            if (position < 0 || position >= ringSize) {
+                throw new IndexOutOfBoundsException(String.valueOf(position));
+            }
+            return ringEntities[ringIndex(position)];
+        }
+        return itemSet.get(position).entity;
     }
 
     /**
@@ -225,10 +390,7 @@ public class Queue extends LinkedComponent {
 
         @Override
         public void process() {
-            // 告诉每一个队列的使用者，队列发生改变
-            for (QueueUser each : queue.userList) {
-                each.queueChanged();
-            }
+            queue.updateUsers();
         }
 
         @Override
@@ -249,82 +411,419 @@ public class Queue extends LinkedComponent {
     public void addEntity(Entity entity) {
         super.addEntity(entity);
 
-        // 建立一个实体项目
-        long entryNum = this.getNumberAdded();
-        if (!fifo) {
-            // 如果是先进后出,则排队的实体号为负值
-            entryNum *= -1;
-        }
         int pri = (int) priority;
-        QueueEntry entry = new QueueEntry(entity, entryNum, pri, getSimTime());
+        long simTicks = getSimTicks();
+        long renegeTick = Long.MAX_VALUE;
+        if (renegeCondition) {
+            renegeTick = simTicks + EventManager.current().secondsToNearestTick(renegeTime);
+        }
+
+        int count = getCount();
+        updateStatistics(count, count + 1);
+
+        // 优先级或排队方式与环形缓冲区中的实体不同时，改用有序集合
+        // 环形缓冲区只检查最早入队实体的违约时刻，开始考虑违约后，缓冲区中已有不违约的实体时也改用有序集合
+        if (ringMode && count > 0 && (pri != ringPriority || fifo != ringFifo
+                || (renegeCondition && ringRenegeTicks[ringNewestIndex()] == Long.MAX_VALUE))) {
+            convertRingToTree();
+        }
+
+        if (ringMode) {
+            if (count == 0) {
+                ringPriority = pri;
+                ringFifo = fifo;
+            }
+            ringAdd(entity, simTicks, renegeTick);
+        } else {
+            // 建立一个实体项目
+            long entryNum = this.getNumberAdded();
+            if (!fifo) {
+                // 如果是先进后出,则排队的实体号为负值
+                entryNum *= -1;
+            }
+            QueueEntry entry = new QueueEntry(entity, entryNum, pri, simTicks, renegeTick);
+
+            // 将实体添加到集合中
+            if (entryMap.containsKey(entity) || !itemSet.add(entry)) {
+                error("Entity %s is already present in the queue.", entity);
+            }
+            entryMap.put(entity, entry);
 
-        // 将实体添加到集合中
-        boolean bool = itemSet.add(entry);
-        if (!bool) {
-            error("Entity %s is already present in the queue.", entity);
+            // 按入队顺序记录违约检查
+            if (renegeCondition) {
+                renegeList.addLast(entry);
+            }
         }
 
-        // 通知该队列的所有用户
-        if (!userUpdateHandle.isScheduled()) {
+        // 通知该队列的用户，定向分派时只有存在空闲服务或其他使用者时才需要通知
+        // 不在此处直接交给空闲服务：同一时刻到达的实体都入队后再分派，才能按优先级和 FIFO/LIFO 选择实体，
+        // 也避免服务在上游组件的 addEntity 调用中处理实体并再次进入本队列
+        if (!userUpdateHandle.isScheduled() && isUpdateNeeded()) {
             // 当前时刻调度 userUpdate target 通知所有使用该队列的组件
             EventManager.scheduleSeconds(0, 2, false, userUpdate, userUpdateHandle);
         }
 
-        // 调度指定时间去检查放弃（违约）条件
-        if (renegeCondition) {
-            double dur =  renegeTime;
-            // 以FIFO的顺序调度违约测试，所以若有多个实体被同时添加到队列中
-            // 则队列中越靠近前目的实体会先被测试
-            // new RenegeActionTarget() 操作相当于命令模式中的客户端，创建命令对象，并设定它的接收者(this)
-            EventManager.scheduleSeconds(dur, 5, true, new RenegeActionTarget(this, entity), null);
+        // 只有最早的违约时刻对应一个待执行的事件
+        if (renegeCondition && !renegeActionHandle.isScheduled()) {
+            scheduleRenegeAction();
         }
     }
 
+    // ***************************************************************************
+    // 分派
+    // ***************************************************************************
+
+    private boolean isUpdateNeeded() {
+        return dispatchPolicy == DispatchPolicy.Broadcast || !otherUsers.isEmpty() || !idleServices.isEmpty();
+    }
+
+    /**
+     * 通知队列的使用者队列发生了改变
+     * 定向分派时，按分派方式每次选择一个空闲服务，直到队列为空或没有空闲服务
+     */
+    private void updateUsers() {
+        // 告诉每一个队列的使用者，队列发生改变
+        if (dispatchPolicy == DispatchPolicy.Broadcast) {
+            for (QueueUser each : userList) {
+                each.queueChanged();
+            }
+            return;
+        }
+
+        for (QueueUser each : otherUsers) {
+            each.queueChanged();
+        }
+        skippedServices.clear();
+        while (!isEmpty()) {
+            int index = selectIdleService();
+            if (index < 0) {
+                break;
+            }
+            int count = getCount();
+            lastDispatched = index;
+            services[index].queueChanged();
+            if (getCount() == count) {
+                skippedServices.set(index);
+            }
+        }
+    }
+
+    /**
+     * 按分派方式选择一个空闲服务，忙闲状态已过期的编号会被清除
+     * @return 没有空闲服务时返回-1
+     */
+    private int selectIdleService() {
+        int ret = -1;
+        double minUtilisation = Double.POSITIVE_INFINITY;
+        long simTicks = getSimTicks();
+        int start = dispatchPolicy == DispatchPolicy.RoundRobin ? lastDispatched + 1 : 0;
+        // 先查找 start 之后的编号，轮流选择时再回到开头查找 start 之前的编号
+        for (int pass = 0; pass < 2; pass++) {
+            int from = pass == 0 ? start : 0;
+            int to = pass == 0 ? services.length : start;
+            for (int index = idleServices.nextSetBit(from); index >= 0 && index < to;
+                 index = idleServices.nextSetBit(index + 1)) {
+                if (!services[index].isIdle()) {
+                    idleServices.clear(index);
+                    continue;
+                }
+                if (skippedServices.get(index)) {
+                    continue;
+                }
+                if (dispatchPolicy != DispatchPolicy.LeastUtilised) {
+                    return index;
+                }
+                double utilisation = services[index].getAverageUtilisation(simTicks);
+                if (utilisation < minUtilisation) {
+                    minUtilisation = utilisation;
+                    ret = index;
+                }
+            }
+        }
+        return ret;
+    }
+
+    // ***************************************************************************
+    // 环形缓冲区
+    // ***************************************************************************
+
+    /**
+     * 缓冲区中第 position 个实体所在的下标
+     * @param position
+     * @return
+     */
+    private int ringIndex(int position) {
+        return (ringHead + position) & (ringEntities.length - 1);
+    }
+
+    /**
+     * 最早入队的实体所在的下标：FIFO 时在队首，LIFO 时在队尾
+     * @return
+     */
+    private int ringOldestIndex() {
+        return ringFifo ? ringHead : ringIndex(ringSize - 1);
+    }
+
+    /**
+     * 最晚入队的实体所在的下标：FIFO 时在队尾，LIFO 时在队首
+     * @return
+     */
+    private int ringNewestIndex() {
+        return ringFifo ? ringIndex(ringSize - 1) : ringHead;
+    }
+
+    /**
+     * 为缓冲区中已有的实体建立入队序号映射
+     */
+    private void buildRingSequenceMap() {
+        ringSequenceMap = new IdentityHashMap<>();
+        for (int i = 0; i < ringSize; i++) {
+            int index = ringIndex(i);
+            ringSequenceMap.put(ringEntities[index], ringSequences[index]);
+        }
+    }
+
+    private void ringAdd(Entity entity, long ticks, long renegeTick) {
+        if (ringSize == ringEntities.length) {
+            growRing();
+        }
+        int index;
+        if (ringFifo) {
+            index = ringIndex(ringSize);
+        } else {
+            ringHead = (ringHead - 1) & (ringEntities.length - 1);
+            index = ringHead;
+        }
+        ringEntities[index] = entity;
+        ringTicksAdded[index] = ticks;
+        ringRenegeTicks[index] = renegeTick;
+        ringSequences[index] = ringNextSequence;
+        if (ringSequenceMap != null) {
+            ringSequenceMap.put(entity, ringNextSequence);
+        }
+        ringNextSequence++;
+        ringSize++;
+    }
+
+    /**
+     * 容量加倍，同时将数据整理为从下标0开始
+     */
+    private void growRing() {
+        int n = ringEntities.length;
+        Entity[] entities = new Entity[n * 2];
+        long[] ticksAdded = new long[n * 2];
+        long[] renegeTicks = new long[n * 2];
+        long[] sequences = new long[n * 2];
+        for (int i = 0; i < ringSize; i++) {
+            int index = ringIndex(i);
+            entities[i] = ringEntities[index];
+            ticksAdded[i] = ringTicksAdded[index];
+            renegeTicks[i] = ringRenegeTicks[index];
+            sequences[i] = ringSequences[index];
+        }
+        ringEntities = entities;
+        ringTicksAdded = ticksAdded;
+        ringRenegeTicks = renegeTicks;
+        ringSequences = sequences;
+        ringHead = 0;
+    }
+
+    /**
+     * 从缓冲区中移除队首或最早入队的实体
+     * @param oldest true 表示移除最早入队的实体，false 表示移除队首的实体
+     * @return
+     */
+    private Entity ringRemove(boolean oldest) {
+        int index = oldest ? ringOldestIndex() : ringHead;
+        boolean removedOldest = index == ringOldestIndex();
+        Entity ret = ringEntities[index];
+        long ticksAdded = ringTicksAdded[index];
+        ringEntities[index] = null;
+        if (ringSequenceMap != null) {
+            ringSequenceMap.remove(ret);
+        }
+        if (index == ringHead) {
+            ringHead = ringIndex(1);
+        }
+        ringSize--;
+        if (ringSize == 0) {
+            ringHead = 0;
+            ringSequenceMap = null;
+        }
+        entityRemoved(ticksAdded, removedOldest);
+        return ret;
+    }
+
+    /**
+     * 将缓冲区中的实体按原有顺序转移到有序集合中
+     * 重新编号的实体号保持原有顺序，且绝对值均小于之后入队实体的实体号
+     */
+    private void convertRingToTree() {
+        long base = this.getNumberAdded() - 1;
+        for (int i = 0; i < ringSize; i++) {
+            int index = ringIndex(i);
+            long entryNum = ringFifo ? base - ringSize + 1 + i : -(base - i);
+            QueueEntry entry = new QueueEntry(ringEntities[index], entryNum, ringPriority,
+                    ringTicksAdded[index], ringRenegeTicks[index]);
+            itemSet.add(entry);
+            entryMap.put(entry.entity, entry);
+        }
+        // 违约检查按入队顺序排列
+        for (int i = 0; i < ringSize; i++) {
+            int position = ringFifo ? i : ringSize - 1 - i;
+            int index = ringIndex(position);
+            if (ringRenegeTicks[index] != Long.MAX_VALUE) {
+                renegeList.addLast(entryMap.get(ringEntities[index]));
+            }
+        }
+        Arrays.fill(ringEntities, null);
+        ringHead = 0;
+        ringSize = 0;
+        ringMode = false;
+        ringSequenceMap = null;
+    }
+
+    // ***************************************************************************
+    // 违约处理
+    // ***************************************************************************
+
+    /**
+     * 丢弃 renegeList 表头已离开队列的entry
+     */
+    private void pruneRenegeList() {
+        while (!renegeList.isEmpty()) {
+            QueueEntry head = renegeList.peekFirst();
+            if (entryMap.get(head.entity) == head) {
+                return;
+            }
+            renegeList.pollFirst();
+        }
+    }
+
+    /**
+     * 返回最早的违约时刻
+     * @return 没有需要检查的实体时返回 Long.MAX_VALUE
+     */
+    private long getNextRenegeTick() {
+        if (ringMode) {
+            return ringSize == 0 ? Long.MAX_VALUE : ringRenegeTicks[ringOldestIndex()];
+        }
+        pruneRenegeList();
+        return renegeList.isEmpty() ? Long.MAX_VALUE : renegeList.peekFirst().renegeTick;
+    }
+
+    /**
+     * 为最早的违约时刻调度违约检查事件
+     */
+    private void scheduleRenegeAction() {
+        long renegeTick = getNextRenegeTick();
+        if (renegeTick == Long.MAX_VALUE) {
+            return;
+        }
+        long dur = Math.max(0L, renegeTick - getSimTicks());
+        EventManager.scheduleTicks(dur, 5, true, renegeActionTarget, renegeActionHandle);
+    }
+
     /**
      * 从队列中移除指定的实体
      * @param entry
      * @return
      */
     public Entity remove(QueueEntry entry) {
-        int queueSize = itemSet.size();
-
-        // 将指定实体从队列的所有实体 TreeSet 集合中删除
+        // 将指定实体从队列的所有实体集合中删除
         boolean found = itemSet.remove(entry);
         if (!found) {
             error("Cannot find the entry in itemSet");
         }
-        this.incrementNumberProcessed();
+        entryMap.remove(entry.entity);
+
+        boolean removedOldest = renegeList.peekFirst() == entry;
+        if (removedOldest) {
+            renegeList.pollFirst();
+        }
+        // 有序集合为空时恢复使用环形缓冲区
+        if (itemSet.isEmpty()) {
+            renegeList.clear();
+            ringMode = true;
+        }
+        entityRemoved(entry.ticksAdded, removedOldest);
         return entry.entity;
     }
 
     /**
-     * 当队列中有实体等待超时，需要进行的操作
-     * (相当于命令模式中的接收者，是真正执行命令操作的功能代码)
-     * @param entity 等待超时的实体
+     * 实体离开队列后更新统计数据
+     * @param ticksAdded 实体的入队时刻
+     * @param removedOldest 离开的是否是最早的违约检查对象，是则改为等待下一个违约时刻
      */
-    public void renegeAction(Entity entity) {
-        // 从等待集合中查找实体对应的条目，
-        QueueEntry entry = this.getQueueEntry(entity);
-        if (entry == null) {
-            // 如果实体已经离开队列，则什么也不做
-            return;
+    private void entityRemoved(long ticksAdded, boolean removedOldest) {
+        int count = getCount();
+        updateStatistics(count + 1, count);
+        queueTimes.record(getSimTicks() - ticksAdded);
+
+        if (removedOldest && renegeActionHandle.isScheduled()) {
+            EventManager.killEvent(renegeActionHandle);
+            scheduleRenegeAction();
         }
+        this.incrementNumberProcessed();
+    }
 
-        // 临时将接受到实体设置为超时的实体
-        Entity oldEntity = this.getReceivedEntity();
-        this.setReceivedEntity(entity);
-
+    /**
+     * 当队列中有实体等待超时，需要进行的操作：按入队顺序移除所有已到违约时刻的实体，
+     * 然后为下一个违约时刻调度事件
+     * (相当于命令模式中的接收者，是真正执行命令操作的功能代码)
+     */
+    public void renegeAction() {
         // 检查是否考虑超时情况的条件
-        if (renegeCondition == false) {
-            // receivedEntity 恢复原状
-            this.setReceivedEntity(oldEntity);
+        if (!renegeCondition) {
             return;
         }
 
-        // 重置实体
-        this.setReceivedEntity(oldEntity);
+        long curTick = getSimTicks();
+        while (getNextRenegeTick() <= curTick) {
+            // 将超时实体从队列中移除，并传送到超时处理组件
+            Entity entity;
+            if (ringMode) {
+                entity = ringRemove(true);
+            } else {
+                entity = this.remove(renegeList.peekFirst());
+            }
+            numberReneged++;
+            renegeDestination.addEntity(entity);
+        }
+
+        if (!renegeActionHandle.isScheduled()) {
+            scheduleRenegeAction();
+        }
+    }
 
-        // 将超时实体从队列中移除，并传送到超时处理组件
+    /**
+     * 让指定的实体违约：实体仍在队列中且考虑违约时，将其移除并传送到违约处理组件
+     * @param entity 等待超时的实体
+     * @deprecated 违约检查事件由队列按最早的违约时刻调度，见 renegeAction()
+     */
+    @Deprecated
+    public void renegeAction(Entity entity) {
+        if (!renegeCondition) {
+            return;
+        }
+        if (ringMode) {
+            if (ringSize == 0) {
+                return;
+            }
+            // 环形缓冲区只能从队首移除指定的实体，其他位置的实体转到有序集合中移除
+            if (ringEntities[ringHead] == entity) {
+                ringRemove(false);
+                numberReneged++;
+                renegeDestination.addEntity(entity);
+                return;
+            }
+            convertRingToTree();
+        }
+        // 如果实体已经离开队列，则什么也不做
+        QueueEntry entry = this.getQueueEntry(entity);
+        if (entry == null) {
+            return;
+        }
         this.remove(entry);
         numberReneged++;
         renegeDestination.addEntity(entity);
@@ -334,16 +833,13 @@ public class Queue extends LinkedComponent {
      * 命令模式中的 ConcreteCommand,执行 Queue 的 renegeAction操作
      */
     private static class RenegeActionTarget extends EntityTarget<Queue> {
-        private final Entity queuedEntity;
-
-        RenegeActionTarget(Queue q, Entity e) {
+        RenegeActionTarget(Queue q) {
             super(q, "renegeAction");
-            queuedEntity = e;
         }
 
         @Override
         public void process() {
-            entity.renegeAction(queuedEntity);
+            entity.renegeAction();
         }
     }
 
@@ -352,9 +848,12 @@ public class Queue extends LinkedComponent {
      * @return
      */
     public Entity removeFirst() {
-        if (itemSet.isEmpty()) {
+        if (isEmpty()) {
             error("Cannot remove an entity frome an empty queue");
         }
+        if (ringMode) {
+            return ringRemove(false);
+        }
         return this.remove(itemSet.first());
     }
 
@@ -363,6 +862,12 @@ public class Queue extends LinkedComponent {
      * @return
      */
     public Entity getFirst() {
+        if (ringMode) {
+            if (ringSize == 0) {
+                throw new NoSuchElementException();
+            }
+            return ringEntities[ringHead];
+        }
         return itemSet.first().entity;
     }
 
@@ -371,7 +876,15 @@ public class Queue extends LinkedComponent {
      * @return
      */
     public int getCount() {
-        return itemSet.size();
+        return ringMode ? ringSize : itemSet.size();
+    }
+
+    /**
+     * 返回等待超时离开队列的实体数目
+     * @return
+     */
+    public long getNumberReneged() {
+        return numberReneged;
     }
 
     /**
@@ -379,15 +892,24 @@ public class Queue extends LinkedComponent {
      * @return
      */
     public boolean isEmpty() {
-        return itemSet.isEmpty();
+        return getCount() == 0;
     }
 
     /**
-     * 返回队列中第一个实体花费的时间刻度
+     * 返回队列中第一个实体花费的时间
      * @return
      */
     public double getQueueTime() {
-        return this.getSimTime() - itemSet.first().timeAdded;
+        long ticksAdded;
+        if (ringMode) {
+            if (ringSize == 0) {
+                throw new NoSuchElementException();
+            }
+            ticksAdded = ringTicksAdded[ringHead];
+        } else {
+            ticksAdded = itemSet.first().ticksAdded;
+        }
+        return EventManager.current().ticksToSeconds(getSimTicks() - ticksAdded);
     }
 
     /**
@@ -395,30 +917,72 @@ public class Queue extends LinkedComponent {
      * @return
      */
     public int getFirstPriority() {
+        if (ringMode) {
+            if (ringSize == 0) {
+                throw new NoSuchElementException();
+            }
+            return ringPriority;
+        }
         return itemSet.first().priority;
     }
 
+    /**
+     * 队列长度由 oldValue 变为 newValue 时更新统计数据：累计上次更新以来队列长度对时间的积分
+     * @param oldValue
+     * @param newValue
+     */
     private void updateStatistics(int oldValue, int newValue) {
+        double simTime = getSimTime();
+        elementSeconds += (simTime - timeOfLastUpdate) * oldValue;
+        timeOfLastUpdate = simTime;
         minElements = Math.min(newValue, minElements);
         maxElements = Math.max(newValue, maxElements);
+    }
 
-        // todo 其他统计相关操作
+    /**
+     * 清空统计数据，之后从当前时刻、当前队列长度重新开始统计
+     */
+    @Override
+    public void clearStatistics() {
+        super.clearStatistics();
+        double simTime = getSimTime();
+        int count = getCount();
+        timeOfLastUpdate = simTime;
+        startOfStatisticsCollection = simTime;
+        minElements = count;
+        maxElements = count;
+        elementSeconds = 0.0;
+        numberReneged = 0;
+        queueTimes.clear();
     }
 
+    /**
+     * 返回截至指定时刻的平均队列长度（按时间加权）
+     * @param simTime 当前仿真时间
+     * @return 统计时间为0时返回0
+     */
+    public double getAverageQueueLength(double simTime) {
+        double dur = simTime - startOfStatisticsCollection;
+        if (dur <= 0.0) {
+            return 0.0;
+        }
+        double total = elementSeconds + (simTime - timeOfLastUpdate) * getCount();
+        return total / dur;
+    }
 
-    @Override
-    public void updateStatistics() {
-//        log.debug("Queue : {} -> NumAdd: {}, NumberProcessed: {}, NumInProcess: {}", this.getName(), this.getNumberAdded(), this.getNumberProcessed(), this.getNumberInProgress());
-        numAddMap.put(getSimTime(), getNumberAdded());
-        numInProgressMap.put(getSimTime(), getNumberInProgress());
-        numProcessedMap.put(getSimTime(), getNumberProcessed());
+    public int getMinElements() {
+        return minElements;
     }
 
-    @Override
-    public void clearStatistics() {
-        numAddMap.clear();
-        numInProgressMap.clear();
-        numProcessedMap.clear();
+    public int getMaxElements() {
+        return maxElements;
     }
 
+    /**
+     * 返回已离开队列的实体的等待时间分布，以 ticks 表示
+     * @return
+     */
+    public Histogram getQueueTimes() {
+        return queueTimes;
+    }
 }
@@ -0,0 +1,57 @@
+package cn.softeng.processflow;
+
+import cn.softeng.basicsim.Entity;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Release 释放到达的实体占用的资源，然后将实体传给下一个组件
+ * 释放的单位在同一时刻直接交给资源中的等待者
+ * @date: 10/19/2026 12:55 AM
+ */
+@Slf4j
+public class Release extends LinkedComponent {
+    /**
+     * 要释放的资源
+     */
+    @Setter
+    @Getter
+    private Resource resource;
+
+    /**
+     * 每个实体释放的单位数
+     */
+    @Setter
+    private int units;
+
+    {
+        resource = null;
+        units = 1;
+    }
+
+    public Release() {}
+
+    public Release(String name) {
+        setName(name);
+    }
+
+    public Release(Integer id) {
+        setName(String.valueOf(id));
+    }
+
+    @Override
+    public void earlyInit() {
+        super.earlyInit();
+        if (resource == null) {
+            error("Resource has not been set");
+        }
+    }
+
+    @Override
+    public void addEntity(Entity entity) {
+        super.addEntity(entity);
+        resource.release(units);
+        this.sendToNextComponent(entity);
+    }
+}
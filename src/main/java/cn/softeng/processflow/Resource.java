@@ -0,0 +1,356 @@
+package cn.softeng.processflow;
+
+import cn.softeng.basicsim.Entity;
+import cn.softeng.events.EventManager;
+import cn.softeng.states.StateEntity;
+import cn.softeng.states.StateRecord;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * 共享资源：有 capacity 个相同的单位，由 Seize 占用、由 Release 释放
+ * 不能立即得到资源的实体按优先级（数值越小越优先，相同时先到先得）排在索引堆中，
+ * 释放资源时在同一个事件中直接把单位交给堆顶的等待者，只比较堆顶，不重新检查所有等待者，也不调度零延迟事件
+ * 堆顶需要的单位数超过可用单位数时，其后的等待者也不会得到资源
+ * @date: 10/19/2026 12:40 AM
+ */
+@Slf4j
+public class Resource extends StateEntity {
+    /**
+     * 资源的单位数
+     */
+    @Setter
+    @Getter
+    private int capacity;
+
+    /**
+     * 正在使用的单位数
+     */
+    private int unitsInUse;
+
+    /**
+     * 等待者组成的小根堆，每个等待者记录自身在堆中的下标
+     */
+    private Waiter[] heap;
+    private int heapSize;
+
+    /**
+     * 实体到其等待记录的映射，用于移除指定的等待者
+     */
+    private final IdentityHashMap<Entity, Waiter> waiterMap;
+
+    /**
+     * 已回收的等待记录
+     */
+    private Waiter freeWaiters;
+
+    /**
+     * 等待者的到达顺序号
+     */
+    private long sequence;
+
+    /**
+     * 正在把资源交给等待者，期间的释放只累加可用单位，由外层循环继续交接
+     */
+    private boolean handingOff;
+
+    /**
+     * 统计使用单位数的时间积分（单位 x ticks）与上一次更新的时刻
+     */
+    private long unitTicks;
+    private long lastUpdateTick;
+    private long lastStatisticsTick;
+
+    private StateRecord workingState;
+    private StateRecord idleState;
+
+    {
+        capacity = 1;
+        heap = new Waiter[8];
+        waiterMap = new IdentityHashMap<>();
+    }
+
+    public Resource() {}
+
+    public Resource(String name) {
+        setName(name);
+    }
+
+    public Resource(Integer id) {
+        setName(String.valueOf(id));
+    }
+
+    @Override
+    public void earlyInit() {
+        super.earlyInit();
+        if (capacity < 1) {
+            error("Capacity must be at least 1: %d", capacity);
+        }
+        workingState = this.getState("Working");
+        idleState = this.getState("Idle");
+        unitsInUse = 0;
+        Arrays.fill(heap, null);
+        heapSize = 0;
+        waiterMap.clear();
+        sequence = 0;
+        handingOff = false;
+        unitTicks = 0;
+        lastUpdateTick = 0;
+        if (EventManager.hasCurrent()) {
+            lastUpdateTick = getSimTicks();
+        }
+        lastStatisticsTick = lastUpdateTick;
+    }
+
+    @Override
+    public String getInitialState() {
+        return "Idle";
+    }
+
+    @Override
+    public void setPresentState() {
+        this.setPresentState(unitsInUse > 0 ? workingState : idleState);
+    }
+
+    // *****************************
+    // 占用与释放
+    // *****************************
+
+    /**
+     * 为实体占用资源，资源不足或已有实体在等待时，实体进入等待
+     * @param seize 得到资源后负责传送实体的组件
+     * @param entity
+     * @param units 需要的单位数
+     * @param priority 等待时的优先级，数值越小越优先
+     * @return 立即得到资源时返回true
+     */
+    boolean seize(Seize seize, Entity entity, int units, int priority) {
+        if (units < 1 || units > capacity) {
+            error("Cannot seize %d units from a resource with capacity %d", units, capacity);
+        }
+        if (heapSize == 0 && unitsInUse + units <= capacity) {
+            allocate(units);
+            return true;
+        }
+        Waiter waiter = newWaiter();
+        waiter.seize = seize;
+        waiter.entity = entity;
+        waiter.units = units;
+        waiter.priority = priority;
+        waiter.sequence = sequence++;
+        waiterMap.put(entity, waiter);
+        heapPush(waiter);
+        return false;
+    }
+
+    /**
+     * 释放资源，并把可用的单位依次交给堆顶的等待者
+     * @param units 释放的单位数
+     */
+    void release(int units) {
+        if (units < 1 || units > unitsInUse) {
+            error("Cannot release %d units, %d units are in use", units, unitsInUse);
+        }
+        updateUnitTicks();
+        unitsInUse -= units;
+        if (handingOff) {
+            return;
+        }
+        handingOff = true;
+        try {
+            while (heapSize > 0 && unitsInUse + heap[0].units <= capacity) {
+                Waiter waiter = heap[0];
+                removeAt(0);
+                waiterMap.remove(waiter.entity);
+                allocate(waiter.units);
+                Seize seize = waiter.seize;
+                Entity entity = waiter.entity;
+                recycle(waiter);
+                seize.granted(entity);
+            }
+        } finally {
+            handingOff = false;
+        }
+        this.setPresentState();
+    }
+
+    /**
+     * 将实体从等待者中移除，实体之后的去向由调用者负责
+     * @param entity
+     * @return 实体不在等待时返回false
+     */
+    public boolean removeWaiter(Entity entity) {
+        Waiter waiter = waiterMap.remove(entity);
+        if (waiter == null) {
+            return false;
+        }
+        removeAt(waiter.heapIndex);
+        recycle(waiter);
+        return true;
+    }
+
+    private void allocate(int units) {
+        updateUnitTicks();
+        unitsInUse += units;
+        this.setPresentState();
+    }
+
+    // *****************************
+    // 等待者索引堆
+    // *****************************
+
+    /**
+     * 等待占用资源的实体
+     */
+    private static final class Waiter {
+        Seize seize;
+        Entity entity;
+        int units;
+        int priority;
+        long sequence;
+        int heapIndex;
+        Waiter next;
+    }
+
+    private Waiter newWaiter() {
+        Waiter ret = freeWaiters;
+        if (ret == null) {
+            return new Waiter();
+        }
+        freeWaiters = ret.next;
+        ret.next = null;
+        return ret;
+    }
+
+    private void recycle(Waiter waiter) {
+        waiter.seize = null;
+        waiter.entity = null;
+        waiter.next = freeWaiters;
+        freeWaiters = waiter;
+    }
+
+    private static boolean before(Waiter a, Waiter b) {
+        if (a.priority != b.priority) {
+            return a.priority < b.priority;
+        }
+        return a.sequence < b.sequence;
+    }
+
+    private void heapPush(Waiter waiter) {
+        if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, heapSize * 2);
+        }
+        heapSize++;
+        siftUp(heapSize - 1, waiter);
+    }
+
+    private void removeAt(int i) {
+        Waiter last = heap[--heapSize];
+        heap[heapSize] = null;
+        if (i == heapSize) {
+            return;
+        }
+        siftDown(i, last);
+        if (heap[i] == last) {
+            siftUp(i, last);
+        }
+    }
+
+    private void siftUp(int i, Waiter waiter) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!before(waiter, heap[parent])) {
+                break;
+            }
+            place(i, heap[parent]);
+            i = parent;
+        }
+        place(i, waiter);
+    }
+
+    private void siftDown(int i, Waiter waiter) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && before(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!before(heap[child], waiter)) {
+                break;
+            }
+            place(i, heap[child]);
+            i = child;
+        }
+        place(i, waiter);
+    }
+
+    private void place(int i, Waiter waiter) {
+        heap[i] = waiter;
+        waiter.heapIndex = i;
+    }
+
+    // *****************************
+    // 统计
+    // *****************************
+
+    private void updateUnitTicks() {
+        long simTicks = getSimTicks();
+        unitTicks += unitsInUse * (simTicks - lastUpdateTick);
+        lastUpdateTick = simTicks;
+    }
+
+    /**
+     * 正在使用的单位数
+     * @return
+     */
+    public int getUnitsInUse() {
+        return unitsInUse;
+    }
+
+    /**
+     * 可用的单位数
+     * @return
+     */
+    public int getAvailableUnits() {
+        return capacity - unitsInUse;
+    }
+
+    /**
+     * 等待资源的实体数
+     * @return
+     */
+    public int getWaitingCount() {
+        return heapSize;
+    }
+
+    /**
+     * 返回截至指定时刻，平均使用的单位数
+     * @param simTicks 当前仿真时刻
+     * @return 统计时间为0时返回0
+     */
+    public double getAverageUnitsInUse(long simTicks) {
+        long total = simTicks - lastStatisticsTick;
+        if (total <= 0) {
+            return 0.0;
+        }
+        long ticks = unitTicks + unitsInUse * (simTicks - lastUpdateTick);
+        return (double) ticks / total;
+    }
+
+    @Override
+    public void clearStatistics() {
+        super.clearStatistics();
+        if (workingState == null) {
+            return;
+        }
+        unitTicks = 0;
+        lastUpdateTick = getSimTicks();
+        lastStatisticsTick = lastUpdateTick;
+    }
+}
@@ -0,0 +1,73 @@
+package cn.softeng.processflow;
+
+import cn.softeng.basicsim.Entity;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Seize 为到达的实体占用资源，得到资源后将实体传给下一个组件，否则实体在资源中等待
+ * 多个 Seize 可以共享一个资源，通过不同的优先级区分等待者
+ * @date: 10/19/2026 12:50 AM
+ */
+@Slf4j
+public class Seize extends LinkedComponent {
+    /**
+     * 要占用的资源
+     */
+    @Setter
+    @Getter
+    private Resource resource;
+
+    /**
+     * 每个实体占用的单位数
+     */
+    @Setter
+    private int units;
+
+    /**
+     * 在资源中等待时的优先级，数值越小越优先
+     */
+    @Setter
+    private int priority;
+
+    {
+        resource = null;
+        units = 1;
+        priority = 0;
+    }
+
+    public Seize() {}
+
+    public Seize(String name) {
+        setName(name);
+    }
+
+    public Seize(Integer id) {
+        setName(String.valueOf(id));
+    }
+
+    @Override
+    public void earlyInit() {
+        super.earlyInit();
+        if (resource == null) {
+            error("Resource has not been set");
+        }
+    }
+
+    @Override
+    public void addEntity(Entity entity) {
+        super.addEntity(entity);
+        if (resource.seize(this, entity, units, priority)) {
+            this.sendToNextComponent(entity);
+        }
+    }
+
+    /**
+     * 资源把单位交给了在该组件等待的实体
+     * @param entity
+     */
+    void granted(Entity entity) {
+        this.sendToNextComponent(entity);
+    }
+}
@@ -1,30 +1,17 @@
 package cn.softeng.processflow;
 
 import cn.softeng.basicsim.Entity;
-import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * 服务从队列中一个接一个地处理实体。完成一个实体后，它将其传递到链中的下一个LinkedComponent。
  * @date: 12/22/2020 9:39 AM
  */
 @Slf4j
-public class Server extends LinkedService {
-    @Setter
-    private double serviceTime;
-    @Setter
-    private Map<String, Double> serverTimeChoice;
+public class Server extends AbstractServer {
 
     private Entity servedEntity;
 
-    {
-        serviceTime = 0;
-        serverTimeChoice = new HashMap<>();
-    }
-
     public Server() {}
 
     public Server(String name) {
@@ -74,30 +61,7 @@ public class Server extends LinkedService {
      */
     @Override
     protected double getProcessingTime(double simTime) {
-        if (!serverTimeChoice.isEmpty()) {
-            SimEntity simEntity = (SimEntity) this.servedEntity;
-            String color = (String) simEntity.getAttribute().get("color");
-            if (color != null) {
-                return serverTimeChoice.get(color);
-            }
-        }
-        return serviceTime;
-    }
-
-
-    @Override
-    public void updateStatistics() {
-//        log.debug("Server : {} -> NumAdd: {}, NumberProcessed: {}, NumInProcess: {}",this.getName(), this.getNumberAdded(), this.getNumberProcessed(), this.getNumberInProgress());
-        numAddMap.put(getSimTime(), getNumberAdded());
-        numInProgressMap.put(getSimTime(), getNumberInProgress());
-        numProcessedMap.put(getSimTime(), getNumberProcessed());
-    }
-
-    @Override
-    public void clearStatistics() {
-        numAddMap.clear();
-        numInProgressMap.clear();
-        numProcessedMap.clear();
+        return getServiceTime(servedEntity);
     }
 
 }
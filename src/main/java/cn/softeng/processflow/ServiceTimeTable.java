@@ -0,0 +1,69 @@
+package cn.softeng.processflow;
+
+import cn.softeng.basicsim.Entity;
+import cn.softeng.distributions.ConstantDistribution;
+import cn.softeng.distributions.Distribution;
+
+import java.util.Map;
+
+/**
+ * 按实体类别选择服务时间分布的查找表，在组件初始化时由类别名称编译为按类别编号索引的数组
+ * 类别编号由 Assign 分配，查找时只需读取一次数组
+ * @date: 10/18/2026 11:50 PM
+ */
+final class ServiceTimeTable {
+    private static final Distribution[] EMPTY = new Distribution[0];
+
+    /**
+     * 按类别编号索引的服务时间分布，没有指定的类别为null
+     */
+    private Distribution[] table = EMPTY;
+
+    /**
+     * 编译查找表，同一个类别同时出现在两个映射中时以分布为准
+     * @param constants 类别名称到固定服务时间的映射
+     * @param distributions 类别名称到服务时间分布的映射
+     */
+    void compile(Map<String, Double> constants, Map<String, Distribution> distributions) {
+        if (constants.isEmpty() && distributions.isEmpty()) {
+            table = EMPTY;
+            return;
+        }
+        Distribution[] ret = new Distribution[0];
+        for (Map.Entry<String, Double> entry : constants.entrySet()) {
+            ret = put(ret, entry.getKey(), new ConstantDistribution(entry.getValue()));
+        }
+        for (Map.Entry<String, Distribution> entry : distributions.entrySet()) {
+            ret = put(ret, entry.getKey(), entry.getValue());
+        }
+        table = ret;
+    }
+
+    private static Distribution[] put(Distribution[] array, String category, Distribution dist) {
+        int id = Assign.getCategoryId(category);
+        if (id >= array.length) {
+            Distribution[] tmp = new Distribution[id + 1];
+            System.arraycopy(array, 0, tmp, 0, array.length);
+            array = tmp;
+        }
+        array[id] = dist;
+        return array;
+    }
+
+    /**
+     * 返回实体所属类别的服务时间分布
+     * @param entity
+     * @param defaultValue 实体没有类别或类别未指定服务时间时使用的分布
+     * @return
+     */
+    Distribution select(Entity entity, Distribution defaultValue) {
+        if (table.length == 0) {
+            return defaultValue;
+        }
+        int id = Assign.categoryIdOf(entity);
+        if (id < 0 || id >= table.length || table[id] == null) {
+            return defaultValue;
+        }
+        return table[id];
+    }
+}
@@ -1,12 +1,15 @@
 package cn.softeng.processflow;
 
+import cn.softeng.basicsim.Entity;
 import cn.softeng.states.StateEntity;
 import lombok.Getter;
-import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.HashMap;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 临时实体：由实体生成其生成，在模型流程中流动的模型
@@ -14,15 +17,46 @@ import java.util.Map;
  */
 @Slf4j
 public class SimEntity extends StateEntity {
+    private static final long[] EMPTY_LONGS = new long[0];
+    private static final Object[] EMPTY_REFS = new Object[0];
+
     /**
-     * 实体属性
+     * 解析属性名称所用的属性表，生成的实体沿用原型的属性表
      */
-    @Setter
     @Getter
-    private Map<String, Object> attribute;
+    private AttributeSchema schema;
+
+    /**
+     * 原始类型属性的槽位，按 AttributeSchema 中的下标保存，double 按位保存
+     */
+    private long[] primitives;
+
+    /**
+     * 原始类型槽位是否已赋值，每个槽位一位
+     */
+    private long[] primitiveSet;
+
+    /**
+     * 对象属性的槽位，未赋值的槽位为null
+     */
+    private Object[] references;
+
+    /**
+     * 实体属性的 Map 视图，用于兼容按名称访问的代码
+     */
+    private AttributeMap attribute;
+
+    /**
+     * 由 Assign 分配的类别编号，未分配时为-1
+     */
+    private int categoryId;
 
     {
-        attribute = new HashMap<>();
+        schema = AttributeSchema.DEFAULT;
+        primitives = EMPTY_LONGS;
+        primitiveSet = EMPTY_LONGS;
+        references = EMPTY_REFS;
+        categoryId = -1;
     }
 
     public SimEntity() {}
@@ -35,6 +69,30 @@ public class SimEntity extends StateEntity {
         setName(String.valueOf(id));
     }
 
+    /**
+     * 创建由 EntityGenerator 或 EntityLauncher 生成的临时实体
+     * @param generated
+     */
+    protected SimEntity(boolean generated) {
+        super(generated);
+    }
+
+    /**
+     * 不通过反射、不加锁地创建临时实体，子类未重写时仍按默认方式创建
+     * @return
+     */
+    @Override
+    protected Entity newGeneratedInstance() {
+        SimEntity ret;
+        if (getClass() != SimEntity.class) {
+            ret = (SimEntity) super.newGeneratedInstance();
+        } else {
+            ret = new SimEntity(true);
+        }
+        ret.schema = schema;
+        return ret;
+    }
+
     @Override
     public void earlyInit() {
         super.earlyInit();
@@ -45,5 +103,213 @@ public class SimEntity extends StateEntity {
         return "None";
     }
 
+    /**
+     * 设置属性表，会清空已有的属性，应在实体生成属性之前设置
+     * @param schema
+     */
+    public void setSchema(AttributeSchema schema) {
+        this.schema = schema;
+        clearAttributes();
+    }
+
+    // *******************************
+    // 按槽位访问属性
+    // *******************************
+
+    public int getInt(int slot) {
+        return (int) getLong(slot);
+    }
+
+    public void setInt(int slot, int val) {
+        setLong(slot, val);
+    }
+
+    public long getLong(int slot) {
+        return slot < primitives.length ? primitives[slot] : 0L;
+    }
+
+    public void setLong(int slot, long val) {
+        if (slot >= primitives.length) {
+            growPrimitives(slot);
+        }
+        primitives[slot] = val;
+        primitiveSet[slot >>> 6] |= 1L << slot;
+    }
+
+    public double getDouble(int slot) {
+        return slot < primitives.length ? Double.longBitsToDouble(primitives[slot]) : 0.0;
+    }
+
+    public void setDouble(int slot, double val) {
+        setLong(slot, Double.doubleToRawLongBits(val));
+    }
+
+    public Object getRef(int slot) {
+        return slot < references.length ? references[slot] : null;
+    }
+
+    public void setRef(int slot, Object val) {
+        if (slot >= references.length) {
+            references = Arrays.copyOf(references, Math.max(slot + 1, schema.referenceCount()));
+        }
+        references[slot] = val;
+    }
+
+    /**
+     * 原始类型槽位是否已赋值
+     * @param slot
+     * @return
+     */
+    public boolean hasPrimitive(int slot) {
+        return slot < primitives.length && (primitiveSet[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    private void growPrimitives(int slot) {
+        int n = Math.max(slot + 1, schema.primitiveCount());
+        primitives = Arrays.copyOf(primitives, n);
+        primitiveSet = Arrays.copyOf(primitiveSet, (n + 63) >>> 6);
+    }
+
+    /**
+     * 清空所有属性，保留已分配的槽位数组，原始类型槽位重置为0
+     */
+    public void clearAttributes() {
+        Arrays.fill(primitives, 0L);
+        Arrays.fill(primitiveSet, 0L);
+        Arrays.fill(references, null);
+        categoryId = -1;
+    }
+
+    /**
+     * 返回由 Assign 分配的类别编号，见 Assign.getCategoryId()
+     * @return 未分配时返回-1
+     */
+    public int getCategoryId() {
+        return categoryId;
+    }
 
+    public void setCategoryId(int categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    // *******************************
+    // 按名称访问属性（兼容视图）
+    // *******************************
+
+    /**
+     * 返回实体属性的 Map 视图，读写直接作用于槽位
+     * 写入原始类型槽位的值按槽位的类型转换：整数槽位保存为 long，读取时返回 Long（写入 Integer 也返回 Long），
+     * 浮点槽位保存为 double，读取时返回 Double；不允许写入null，删除属性应使用 remove()
+     * 新代码应通过 AttributeSchema 解析槽位后使用 getInt(slot)、getRef(slot) 等方法
+     * @return
+     */
+    public Map<String, Object> getAttribute() {
+        if (attribute == null) {
+            attribute = new AttributeMap();
+        }
+        return attribute;
+    }
+
+    /**
+     * 用指定的属性替换实体的全部属性
+     * @param map
+     */
+    public void setAttribute(Map<String, Object> map) {
+        clearAttributes();
+        getAttribute().putAll(map);
+    }
+
+    /**
+     * 按名称读写槽位的 Map 视图
+     */
+    private class AttributeMap extends AbstractMap<String, Object> {
+        @Override
+        public Object get(Object key) {
+            AttributeSchema.Slot slot = schema.find((String) key);
+            if (slot == null) {
+                return null;
+            }
+            switch (slot.kind) {
+                case Long:
+                    return hasPrimitive(slot.index) ? (Object) getLong(slot.index) : null;
+                case Double:
+                    return hasPrimitive(slot.index) ? (Object) getDouble(slot.index) : null;
+                default:
+                    return getRef(slot.index);
+            }
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Object put(String key, Object value) {
+            if (value == null) {
+                throw new IllegalArgumentException("Attribute value must not be null: " + key);
+            }
+            Object ret = get(key);
+            AttributeSchema.Slot slot = schema.find(key);
+            if (slot == null) {
+                setRef(schema.referenceSlot(key), value);
+                return ret;
+            }
+            switch (slot.kind) {
+                case Long:
+                    setLong(slot.index, ((Number) value).longValue());
+                    break;
+                case Double:
+                    setDouble(slot.index, ((Number) value).doubleValue());
+                    break;
+                default:
+                    setRef(slot.index, value);
+                    break;
+            }
+            return ret;
+        }
+
+        @Override
+        public Object remove(Object key) {
+            Object ret = get(key);
+            AttributeSchema.Slot slot = schema.find((String) key);
+            if (slot == null || ret == null) {
+                return ret;
+            }
+            if (slot.kind == AttributeSchema.Kind.Reference) {
+                references[slot.index] = null;
+            } else {
+                primitiveSet[slot.index >>> 6] &= ~(1L << slot.index);
+            }
+            return ret;
+        }
+
+        @Override
+        public void clear() {
+            clearAttributes();
+        }
+
+        /**
+         * 返回已赋值属性的副本
+         * @return
+         */
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            LinkedHashSet<Entry<String, Object>> ret = new LinkedHashSet<>();
+            for (int i = 0; i < primitives.length; i++) {
+                if (!hasPrimitive(i)) {
+                    continue;
+                }
+                Object val = schema.primitiveKind(i) == AttributeSchema.Kind.Double
+                        ? (Object) getDouble(i) : (Object) getLong(i);
+                ret.add(new SimpleImmutableEntry<>(schema.primitiveName(i), val));
+            }
+            for (int i = 0; i < references.length; i++) {
+                if (references[i] != null) {
+                    ret.add(new SimpleImmutableEntry<>(schema.referenceName(i), references[i]));
+                }
+            }
+            return ret;
+        }
+    }
 }
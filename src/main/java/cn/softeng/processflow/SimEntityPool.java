@@ -0,0 +1,144 @@
+package cn.softeng.processflow;
+
+import cn.softeng.basicsim.Entity;
+import cn.softeng.basicsim.ErrorException;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+
+/**
+ * SimEntity 实体池（可选）：EntitySink 将到达的临时实体归还到池中，
+ * EntityGenerator 和 EntityLauncher 生成实体时优先从池中取出，避免每次到达都创建新的实体及其属性、状态集合
+ * 池中的实体处于删除状态，组件接收到已归还的实体时会报错；取出后由生成组件调用 earlyInit() 重置状态
+ * 使用时将同一个实体池设置给生成组件和 EntitySink；不同类型的实体分别保存，取出时只取与原型类型相同的实体
+ * @date: 10/18/2026 6:10 PM
+ */
+public class SimEntityPool {
+    /**
+     * 池中最多保留的实体数
+     */
+    private final int capacity;
+
+    /**
+     * 已归还、等待再次使用的实体，每个实体类型一个队列
+     */
+    private final HashMap<Class<?>, ArrayDeque<SimEntity>> freeEntities;
+
+    /**
+     * 池中所有类型的实体总数
+     */
+    private int size;
+
+    /**
+     * 取出实体的次数，及其中从池中取得实体的次数
+     */
+    private long acquireCount;
+    private long hitCount;
+
+    /**
+     * 归还实体的次数
+     */
+    private long releaseCount;
+
+    public SimEntityPool() {
+        this(1024);
+    }
+
+    public SimEntityPool(int capacity) {
+        this.capacity = capacity;
+        freeEntities = new HashMap<>();
+    }
+
+    /**
+     * 以指定实体为原型取出一个临时实体，池中没有可用的同类型实体时创建新的实体
+     * @param proto 原型实体
+     * @param prefix 名称前缀
+     * @param number 名称序号
+     * @return
+     */
+    public Entity acquire(Entity proto, String prefix, long number) {
+        acquireCount++;
+        ArrayDeque<SimEntity> deque = freeEntities.get(proto.getClass());
+        SimEntity ent = deque == null ? null : deque.pollLast();
+        if (ent == null) {
+            return Entity.generateCopy(proto, prefix, number);
+        }
+        size--;
+        hitCount++;
+        ent.renewGenerated(prefix, number);
+        AttributeSchema schema = ((SimEntity) proto).getSchema();
+        if (ent.getSchema() != schema) {
+            ent.setSchema(schema);
+        }
+        return ent;
+    }
+
+    /**
+     * 归还一个临时实体，归还后该实体被视为已删除，不能再使用
+     * @param ent
+     */
+    public void release(Entity ent) {
+        if (ent.isDead()) {
+            throw new ErrorException("Entity %s has already been killed or released", ent.getName());
+        }
+        if (!ent.isGenerated() || !(ent instanceof SimEntity)) {
+            ent.kill();
+            return;
+        }
+        releaseCount++;
+        SimEntity simEntity = (SimEntity) ent;
+        simEntity.kill();
+        simEntity.clearAttributes();
+        if (size < capacity) {
+            ArrayDeque<SimEntity> deque = freeEntities.get(simEntity.getClass());
+            if (deque == null) {
+                deque = new ArrayDeque<>();
+                freeEntities.put(simEntity.getClass(), deque);
+            }
+            deque.addLast(simEntity);
+            size++;
+        }
+    }
+
+    /**
+     * 从池中取得实体的比例
+     * @return 尚未取出过实体时返回0
+     */
+    public double getHitRate() {
+        if (acquireCount == 0) {
+            return 0.0;
+        }
+        return (double) hitCount / acquireCount;
+    }
+
+    public long getAcquireCount() {
+        return acquireCount;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getReleaseCount() {
+        return releaseCount;
+    }
+
+    /**
+     * 池中当前可用的实体数
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 清空池中的实体和计数
+     */
+    public void clear() {
+        freeEntities.clear();
+        size = 0;
+        acquireCount = 0;
+        hitCount = 0;
+        releaseCount = 0;
+    }
+}
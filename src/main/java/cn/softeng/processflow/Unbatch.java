@@ -0,0 +1,44 @@
+package cn.softeng.processflow;
+
+import cn.softeng.basicsim.Entity;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Unbatch 将 Batch 生成的批次拆分为成员实体，按成员到达 Batch 的顺序依次传给下一个组件，然后删除批次实体
+ * 不是批次的实体直接传给下一个组件
+ * numberAdded 统计到达的批次数，numberProcessed 统计发出的成员实体数
+ * @date: 10/18/2026 11:30 PM
+ */
+@Slf4j
+public class Unbatch extends LinkedComponent {
+
+    public Unbatch() {}
+
+    public Unbatch(String name) {
+        setName(name);
+    }
+
+    public Unbatch(Integer id) {
+        setName(String.valueOf(id));
+    }
+
+    @Override
+    public void addEntity(Entity entity) {
+        super.addEntity(entity);
+        if (!(entity instanceof BatchEntity)) {
+            this.sendToNextComponent(entity);
+            return;
+        }
+        BatchEntity batch = (BatchEntity) entity;
+        Entity[] members = batch.takeMembers();
+        batch.kill();
+        for (Entity each : members) {
+            this.sendToNextComponent(each);
+        }
+    }
+
+    @Override
+    public long getNumberInProgress() {
+        return 0;
+    }
+}
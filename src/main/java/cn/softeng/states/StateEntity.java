@@ -1,24 +1,65 @@
 package cn.softeng.states;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 
 import cn.softeng.basicsim.Entity;
 import cn.softeng.events.EventManager;
 
 /**
+ * 带有状态的实体，记录每个状态累计经历的时间（ticks）
+ * 状态名称被 intern 后解析为 StateRecord，每个状态有一个固定的下标，状态切换只更新原始类型字段，不分配对象
+ * 状态监听器需要在实体上注册，状态切换时只通知注册在该实体上的监听器
  * @date: 12/16/2020 6:05 PM
  */
 public class StateEntity extends Entity {
+    private static final StateRecord[] EMPTY_RECORDS = new StateRecord[0];
+
     /**
      * The present state of the entity
      */
     private StateRecord presentState;
+
+    /**
+     * 状态名称到状态记录的映射，只在按名称查找状态时使用
+     */
     private final HashMap<String, StateRecord> states;
+
+    /**
+     * 按下标排列的状态记录
+     */
+    private StateRecord[] stateRecords;
+    private int stateCount;
+
+    /**
+     * 开始统计状态时间的时刻
+     */
     private long lastStateCollectionTick;
+
+    /**
+     * 已结束的工作状态累计的时间，不包括当前状态
+     */
     private long workingTicks;
 
+    /**
+     * 注册在该实体上的状态监听器，没有监听器时为null
+     */
+    private ArrayList<StateEntityListener> listeners;
+
     public StateEntity() {
         states = new HashMap<>();
+        stateRecords = EMPTY_RECORDS;
+    }
+
+    /**
+     * 创建仿真运行期间生成的临时实体，见 Entity(boolean)
+     * @param generated
+     */
+    protected StateEntity(boolean generated) {
+        super(generated);
+        states = new HashMap<>();
+        stateRecords = EMPTY_RECORDS;
     }
 
     @Override
@@ -35,7 +76,7 @@ public class StateEntity extends Entity {
     }
 
     /**
-     * 初始化状态实体，
+     * 初始化状态实体，保留已解析的状态记录，只重置其中的时间
      */
     private void initStateData() {
         lastStateCollectionTick = 0;
@@ -45,14 +86,243 @@ public class StateEntity extends Entity {
         }
         // 累计工作时间刻度
         workingTicks = 0;
-        states.clear();
+        for (int i = 0; i < stateCount; i++) {
+            StateRecord each = stateRecords[i];
+            each.initTicks = 0;
+            each.totalTicks = 0;
+            each.completedCycleTicks = 0;
+            each.currentCycleTicks = 0;
+            each.startTick = 0;
+        }
 
         // 给状态实体添加一个初始状态
-        String initState = getInitialState().intern();
-        StateRecord init = new StateRecord(initState, isValidWorkingState(initState));
+        StateRecord init = getState(getInitialState());
         init.startTick = lastStateCollectionTick;
         presentState = init;
-        states.put(init.name, init);
+    }
+
+    /**
+     * 返回指定名称的状态记录，状态不存在时新建，返回的记录可以缓存，在实体的整个生命周期内有效
+     * @param state 状态名称
+     * @return
+     */
+    public final StateRecord getState(String state) {
+        StateRecord ret = states.get(state);
+        if (ret != null) {
+            return ret;
+        }
+        String name = state.intern();
+        ret = new StateRecord(name, isValidWorkingState(name), stateCount);
+        if (stateCount == stateRecords.length) {
+            stateRecords = Arrays.copyOf(stateRecords, Math.max(4, stateCount * 2));
+        }
+        stateRecords[stateCount++] = ret;
+        states.put(name, ret);
+        return ret;
+    }
+
+    /**
+     * 返回指定下标的状态记录
+     * @param index
+     * @return
+     */
+    public final StateRecord getState(int index) {
+        return stateRecords[index];
+    }
+
+    /**
+     * 已使用过的状态数
+     * @return
+     */
+    public final int getStateCount() {
+        return stateCount;
+    }
+
+    /**
+     * 切换到指定名称的状态
+     * @param state 状态名称，必须是 isValidState() 认可的状态
+     */
+    public final void setPresentState(String state) {
+        StateRecord next = states.get(state);
+        if (next == null) {
+            if (!isValidState(state)) {
+                error("Specified state: %s was not found in the StateList.", state);
+            }
+            next = getState(state);
+        }
+        setPresentState(next);
+    }
+
+    /**
+     * 切换到指定的状态，累计前一个状态经历的时间，并通知注册的监听器
+     * @param next 由 getState() 返回的该实体的状态记录
+     */
+    public final void setPresentState(StateRecord next) {
+        StateRecord prev = presentState;
+        if (prev == next) {
+            return;
+        }
+        long curTick = getSimTicks();
+        long duration = curTick - prev.startTick;
+        prev.totalTicks += duration;
+        prev.currentCycleTicks += duration;
+        if (prev.working) {
+            workingTicks += duration;
+        }
+        next.startTick = curTick;
+        presentState = next;
+        // 离开工作状态进入非工作状态时，一个工作周期结束
+        if (prev.working && !next.working) {
+            collectCycleTicks();
+        }
+
+        if (listeners != null) {
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).updateForStateChange(this, prev, next);
+            }
+        }
+    }
+
+    /**
+     * 结束当前周期：各状态本周期累计的时间移入 completedCycleTicks，并开始新的周期
+     */
+    private void collectCycleTicks() {
+        for (int i = 0; i < stateCount; i++) {
+            StateRecord each = stateRecords[i];
+            each.completedCycleTicks = each.currentCycleTicks;
+            each.currentCycleTicks = 0;
+        }
+    }
+
+    /**
+     * 子类根据自身的状态变量更新当前状态，默认不做任何操作
+     */
+    public void setPresentState() {}
+
+    public final StateRecord getPresentState() {
+        return presentState;
+    }
+
+    public final String getPresentStateName() {
+        return presentState.name;
+    }
+
+    /**
+     * 当前状态是否计为工作时间
+     * @return
+     */
+    public final boolean isWorkingState() {
+        return presentState.working;
+    }
+
+    /**
+     * 返回截至指定时刻，实体处于指定状态的累计时间
+     * @param state 该实体的状态记录
+     * @param simTicks 当前仿真时刻
+     * @return
+     */
+    public final long getTicksInState(StateRecord state, long simTicks) {
+        long ret = state.totalTicks;
+        if (state == presentState) {
+            ret += simTicks - state.startTick;
+        }
+        return ret;
+    }
+
+    /**
+     * 返回截至当前时刻，实体处于指定状态的累计时间，状态未出现过时返回0
+     * @param state 状态名称
+     * @return
+     */
+    public final long getTicksInState(String state) {
+        StateRecord rec = states.get(state);
+        if (rec == null) {
+            return 0;
+        }
+        return getTicksInState(rec, getSimTicks());
+    }
+
+    /**
+     * 返回截至指定时刻的累计工作时间
+     * @param simTicks 当前仿真时刻
+     * @return
+     */
+    public final long getWorkingTicks(long simTicks) {
+        long ret = workingTicks;
+        if (presentState.working) {
+            ret += simTicks - presentState.startTick;
+        }
+        return ret;
+    }
+
+    /**
+     * 返回截至指定时刻的利用率，即工作时间占统计时间的比例
+     * @param simTicks 当前仿真时刻
+     * @return 统计时间为0时返回0
+     */
+    public final double getUtilisation(long simTicks) {
+        long total = simTicks - lastStateCollectionTick;
+        if (total <= 0) {
+            return 0.0;
+        }
+        return (double) getWorkingTicks(simTicks) / total;
+    }
+
+    /**
+     * 返回截至当前时刻的利用率，只能在仿真线程中调用
+     * @return
+     */
+    public final double getUtilisation() {
+        return getUtilisation(getSimTicks());
+    }
+
+    /**
+     * 清空统计数据：已经历的时间计入 initTicks，之后从当前时刻重新开始统计
+     */
+    @Override
+    public void clearStatistics() {
+        super.clearStatistics();
+        // 尚未初始化的实体没有状态数据
+        if (presentState == null) {
+            return;
+        }
+        long curTick = getSimTicks();
+        for (int i = 0; i < stateCount; i++) {
+            StateRecord each = stateRecords[i];
+            each.initTicks += getTicksInState(each, curTick);
+            each.totalTicks = 0;
+            each.completedCycleTicks = 0;
+            each.currentCycleTicks = 0;
+        }
+        presentState.startTick = curTick;
+        workingTicks = 0;
+        lastStateCollectionTick = curTick;
+    }
+
+    /**
+     * 注册状态监听器，状态切换时会调用其 updateForStateChange()
+     * @param listener
+     */
+    public final void addStateListener(StateEntityListener listener) {
+        if (!listener.isWatching(this)) {
+            return;
+        }
+        if (listeners == null) {
+            listeners = new ArrayList<>(2);
+        }
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    public final void removeStateListener(StateEntityListener listener) {
+        if (listeners == null) {
+            return;
+        }
+        listeners.remove(listener);
+        if (listeners.isEmpty()) {
+            listeners = null;
+        }
     }
 
     /**
@@ -82,6 +352,4 @@ public class StateEntity extends Entity {
         return "Working".equals(state);
     }
 
-    public void setPresentState() {}
-
 }
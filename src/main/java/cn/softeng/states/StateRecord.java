@@ -24,16 +24,49 @@ public class StateRecord {
 	long currentCycleTicks;
 	long startTick;
 	public final boolean working;
+	/**
+	 * 该状态在所属实体中的下标
+	 */
+	public final int index;
 
-	StateRecord(String state, boolean work) {
+	StateRecord(String state, boolean work, int idx) {
 		name = state;
 		working = work;
+		index = idx;
 	}
 
 	public long getStartTick() {
 		return startTick;
 	}
 
+	/**
+	 * 清空统计数据之前在该状态累计的时间
+	 */
+	public long getInitTicks() {
+		return initTicks;
+	}
+
+	/**
+	 * 清空统计数据之后，已结束的各段该状态时间之和，不包括正在进行的一段
+	 */
+	public long getTotalTicks() {
+		return totalTicks;
+	}
+
+	/**
+	 * 当前周期内已结束的各段该状态时间之和，实体离开工作状态时周期结束
+	 */
+	public long getCurrentCycleTicks() {
+		return currentCycleTicks;
+	}
+
+	/**
+	 * 上一个已结束的周期内该状态累计的时间
+	 */
+	public long getCompletedCycleTicks() {
+		return completedCycleTicks;
+	}
+
 	@Override
 	public String toString() {
 		return name;
@@ -0,0 +1,80 @@
+package cn.softeng.statistics;
+
+import java.util.List;
+
+/**
+ * 与 StatisticsStore 共用时间列的时间序列（EveryAdvance 策略）
+ * 只在数据变化时调用 record()，没有记录的时间点沿用上一次的值
+ * @date: 10/18/2026 11:30 AM
+ */
+final class AlignedTimeSeries extends TimeSeries {
+    /**
+     * 与时间列按下标对齐的数据列，只填充到最后一次记录的位置
+     */
+    private final LongColumn values;
+
+    AlignedTimeSeries(StatisticsStore store, String name) {
+        super(store, name, SamplingPolicy.EVERY_ADVANCE);
+        this.values = new LongColumn();
+    }
+
+    /**
+     * 在当前（最后一个）时间点记录数据，中间未记录的时间点用上一次的值补齐
+     * @param time 仿真时间（秒），与时间列的最后一个时间点相同
+     * @param val 统计量的值
+     */
+    @Override
+    void append(double time, long val) {
+        int index = store.size() - 1;
+        if (index < 0) {
+            return;
+        }
+        int n = values.size();
+        if (n > index) {
+            values.set(index, val);
+            return;
+        }
+        long last = values.last(0L);
+        while (n < index) {
+            values.add(last);
+            n++;
+        }
+        values.add(val);
+    }
+
+    /**
+     * 序列长度，与时间列的长度相同
+     * @return
+     */
+    @Override
+    public int size() {
+        return store.size();
+    }
+
+    @Override
+    public double getTime(int index) {
+        return store.getTime(index);
+    }
+
+    @Override
+    public long get(int index) {
+        if (index < 0 || index >= store.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + store.size());
+        }
+        if (index < values.size()) {
+            return values.get(index);
+        }
+        return values.last(0L);
+    }
+
+    @Override
+    public List<Double> getTimeList() {
+        return store.getTimeList();
+    }
+
+    @Override
+    void clear() {
+        super.clear();
+        values.clear();
+    }
+}
@@ -0,0 +1,192 @@
+package cn.softeng.statistics;
+
+/**
+ * 流式抽稀的时间序列（Decimated 策略）
+ * 每个桶包含 bucketSize 个连续的数据，只保留其中的最小值和最大值；
+ * 桶的数目达到上限时，相邻的两个桶合并为一个，bucketSize 加倍，因此内存占用有上限
+ * @date: 10/18/2026 1:20 PM
+ */
+final class DecimatedTimeSeries extends TimeSeries {
+    /**
+     * 已关闭的桶中的最小值、最大值及其时间
+     */
+    private final DoubleColumn minTimes;
+    private final LongColumn minValues;
+    private final DoubleColumn maxTimes;
+    private final LongColumn maxValues;
+
+    /**
+     * 最多保留的桶数（偶数）
+     */
+    private final int maxBuckets;
+
+    /**
+     * 每个桶包含的数据个数
+     */
+    private int bucketSize;
+
+    /**
+     * 正在填充的桶
+     */
+    private int openCount;
+    private double openMinTime;
+    private long openMin;
+    private double openMaxTime;
+    private long openMax;
+
+    /**
+     * 展开后的数据点，读取时按需重建
+     */
+    private double[] pointTimes;
+    private long[] pointValues;
+    private int pointCount;
+    private boolean pointsStale;
+
+    DecimatedTimeSeries(StatisticsStore store, String name, SamplingPolicy policy) {
+        super(store, name, policy);
+        minTimes = new DoubleColumn();
+        minValues = new LongColumn();
+        maxTimes = new DoubleColumn();
+        maxValues = new LongColumn();
+        maxBuckets = (policy.getMaxPoints() / 2) & ~1;
+        pointTimes = new double[0];
+        pointValues = new long[0];
+        this.clear();
+    }
+
+    @Override
+    void append(double time, long val) {
+        pointsStale = true;
+        if (openCount == 0) {
+            openMinTime = time;
+            openMin = val;
+            openMaxTime = time;
+            openMax = val;
+        } else {
+            if (val < openMin) {
+                openMinTime = time;
+                openMin = val;
+            }
+            if (val > openMax) {
+                openMaxTime = time;
+                openMax = val;
+            }
+        }
+        openCount++;
+        if (openCount < bucketSize) {
+            return;
+        }
+
+        // 关闭当前的桶
+        minTimes.add(openMinTime);
+        minValues.add(openMin);
+        maxTimes.add(openMaxTime);
+        maxValues.add(openMax);
+        openCount = 0;
+        if (minTimes.size() >= maxBuckets) {
+            this.mergeBuckets();
+        }
+    }
+
+    /**
+     * 将相邻的两个桶合并为一个，桶数减半
+     */
+    private void mergeBuckets() {
+        int n = minTimes.size() / 2;
+        for (int i = 0; i < n; i++) {
+            int a = 2 * i;
+            int b = a + 1;
+            int min = minValues.get(a) <= minValues.get(b) ? a : b;
+            int max = maxValues.get(a) >= maxValues.get(b) ? a : b;
+            minTimes.set(i, minTimes.get(min));
+            minValues.set(i, minValues.get(min));
+            maxTimes.set(i, maxTimes.get(max));
+            maxValues.set(i, maxValues.get(max));
+        }
+        minTimes.truncate(n);
+        minValues.truncate(n);
+        maxTimes.truncate(n);
+        maxValues.truncate(n);
+        bucketSize *= 2;
+    }
+
+    /**
+     * 按时间顺序展开每个桶的最小值和最大值
+     */
+    private void updatePoints() {
+        if (!pointsStale) {
+            return;
+        }
+        int buckets = minTimes.size();
+        int cap = 2 * (buckets + 1);
+        if (pointTimes.length < cap) {
+            pointTimes = new double[cap];
+            pointValues = new long[cap];
+        }
+        pointCount = 0;
+        for (int i = 0; i < buckets; i++) {
+            addBucket(minTimes.get(i), minValues.get(i), maxTimes.get(i), maxValues.get(i));
+        }
+        if (openCount > 0) {
+            addBucket(openMinTime, openMin, openMaxTime, openMax);
+        }
+        pointsStale = false;
+    }
+
+    private void addBucket(double minTime, long min, double maxTime, long max) {
+        if (minTime == maxTime) {
+            addPoint(minTime, min);
+        } else if (minTime < maxTime) {
+            addPoint(minTime, min);
+            addPoint(maxTime, max);
+        } else {
+            addPoint(maxTime, max);
+            addPoint(minTime, min);
+        }
+    }
+
+    private void addPoint(double time, long val) {
+        pointTimes[pointCount] = time;
+        pointValues[pointCount] = val;
+        pointCount++;
+    }
+
+    @Override
+    public int size() {
+        updatePoints();
+        return pointCount;
+    }
+
+    @Override
+    public double getTime(int index) {
+        updatePoints();
+        checkIndex(index);
+        return pointTimes[index];
+    }
+
+    @Override
+    public long get(int index) {
+        updatePoints();
+        checkIndex(index);
+        return pointValues[index];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= pointCount) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + pointCount);
+        }
+    }
+
+    @Override
+    void clear() {
+        super.clear();
+        minTimes.clear();
+        minValues.clear();
+        maxTimes.clear();
+        maxValues.clear();
+        bucketSize = 1;
+        openCount = 0;
+        pointCount = 0;
+        pointsStale = true;
+    }
+}
@@ -0,0 +1,132 @@
+package cn.softeng.statistics;
+
+import java.util.Arrays;
+
+/**
+ * 流式直方图，记录非负的 long 值（例如以 ticks 表示的等待时间），可以在 O(1) 时间内记录一个值，
+ * 并在不保存原始数据的情况下估计分位数
+ * 小于 64 的值每个值一个桶；更大的值按二进制数量级分段，每段 32 个等宽的桶，估计值的相对误差不超过 1/32
+ * 桶的数目只随记录的最大值的数量级增长，最多约 1900 个
+ * @date: 10/18/2026 9:40 PM
+ */
+public final class Histogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_COUNT = SUB_BUCKET_COUNT >>> 1;
+
+    /**
+     * 每个桶中记录的值的个数，按需扩容
+     */
+    private long[] counts;
+
+    private long totalCount;
+    private double sum;
+    private long min;
+    private long max;
+
+    public Histogram() {
+        counts = new long[SUB_BUCKET_COUNT];
+        clear();
+    }
+
+    /**
+     * 记录一个值，负值按0记录
+     * @param val
+     */
+    public void record(long val) {
+        if (val < 0) {
+            val = 0;
+        }
+        int index = bucketIndex(val);
+        if (index >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(index + 1, counts.length * 2));
+        }
+        counts[index]++;
+        totalCount++;
+        sum += val;
+        min = Math.min(min, val);
+        max = Math.max(max, val);
+    }
+
+    /**
+     * 返回估计的分位数
+     * @param percentile 百分位，范围 [0, 100]
+     * @return 没有记录任何值时返回0
+     */
+    public long getPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        double p = Math.min(100.0, Math.max(0.0, percentile));
+        long rank = Math.max(1L, (long) Math.ceil(p / 100.0 * totalCount));
+        // 最小值和最大值是精确记录的
+        if (rank == 1) {
+            return min;
+        }
+        if (rank >= totalCount) {
+            return max;
+        }
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                // 取桶的中点，并限制在已记录值的范围内
+                long lo = lowestValue(i);
+                long mid = lo + (bucketWidth(i) - 1) / 2;
+                return Math.min(max, Math.max(min, mid));
+            }
+        }
+        return max;
+    }
+
+    public long getCount() {
+        return totalCount;
+    }
+
+    public double getMean() {
+        return totalCount == 0 ? 0.0 : sum / totalCount;
+    }
+
+    /**
+     * @return 没有记录任何值时返回0
+     */
+    public long getMin() {
+        return totalCount == 0 ? 0 : min;
+    }
+
+    public long getMax() {
+        return totalCount == 0 ? 0 : max;
+    }
+
+    public void clear() {
+        Arrays.fill(counts, 0L);
+        totalCount = 0;
+        sum = 0.0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    private static int bucketIndex(long val) {
+        if (val < SUB_BUCKET_COUNT) {
+            return (int) val;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(val) - (SUB_BUCKET_BITS - 1);
+        return SUB_BUCKET_COUNT + (shift - 1) * HALF_COUNT + (int) (val >>> shift) - HALF_COUNT;
+    }
+
+    private static long lowestValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / HALF_COUNT + 1;
+        long sub = (index - SUB_BUCKET_COUNT) % HALF_COUNT + HALF_COUNT;
+        return sub << shift;
+    }
+
+    private static long bucketWidth(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return 1;
+        }
+        return 1L << ((index - SUB_BUCKET_COUNT) / HALF_COUNT + 1);
+    }
+}
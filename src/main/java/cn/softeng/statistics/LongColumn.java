@@ -0,0 +1,118 @@
+package cn.softeng.statistics;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * 按块增长的 long 列，数据保存在定长的 long[] 块中，扩容时不需要复制已有数据
+ * @date: 10/18/2026 9:20 AM
+ */
+public final class LongColumn {
+    static final int CHUNK_BITS = 10;
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * 数据块，每块长度为 CHUNK_SIZE
+     */
+    private long[][] chunks;
+
+    /**
+     * 列中数据的个数
+     */
+    private int size;
+
+    public LongColumn() {
+        chunks = new long[8][];
+        size = 0;
+    }
+
+    /**
+     * 在列的末尾添加一个值
+     * @param val
+     */
+    public void add(long val) {
+        int chunk = size >>> CHUNK_BITS;
+        if (chunk == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+        }
+        if (chunks[chunk] == null) {
+            chunks[chunk] = new long[CHUNK_SIZE];
+        }
+        chunks[chunk][size & CHUNK_MASK] = val;
+        size++;
+    }
+
+    public long get(int index) {
+        checkIndex(index);
+        return chunks[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    public void set(int index, long val) {
+        checkIndex(index);
+        chunks[index >>> CHUNK_BITS][index & CHUNK_MASK] = val;
+    }
+
+    /**
+     * 返回列中最后一个值，列为空时返回 defaultValue
+     */
+    public long last(long defaultValue) {
+        if (size == 0) {
+            return defaultValue;
+        }
+        return get(size - 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 丢弃下标 newSize 及之后的数据
+     * @param newSize 截断后的长度
+     */
+    public void truncate(int newSize) {
+        if (newSize < 0 || newSize > size) {
+            throw new IndexOutOfBoundsException("Index: " + newSize + ", Size: " + size);
+        }
+        size = newSize;
+    }
+
+    /**
+     * 清空列中的数据，只保留第一个数据块
+     */
+    public void clear() {
+        for (int i = 1; i < chunks.length; i++) {
+            chunks[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * 返回该列的只读视图，不复制数据
+     * @return
+     */
+    public List<Long> asList() {
+        return new View();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private class View extends AbstractList<Long> implements RandomAccess {
+        @Override
+        public Long get(int index) {
+            return LongColumn.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
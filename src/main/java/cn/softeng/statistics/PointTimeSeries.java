@@ -0,0 +1,64 @@
+package cn.softeng.statistics;
+
+/**
+ * 自带时间列的时间序列，用于 ChangeOnly 和 FixedInterval 策略
+ * @date: 10/18/2026 11:40 AM
+ */
+final class PointTimeSeries extends TimeSeries {
+    private final DoubleColumn times;
+    private final LongColumn values;
+
+    /**
+     * 若为true，值与上一个数据点相同时不记录
+     */
+    private final boolean changeOnly;
+
+    PointTimeSeries(StatisticsStore store, String name, SamplingPolicy policy) {
+        super(store, name, policy);
+        this.times = new DoubleColumn();
+        this.values = new LongColumn();
+        this.changeOnly = policy.getType() == SamplingPolicy.Type.ChangeOnly;
+    }
+
+    @Override
+    void append(double time, long val) {
+        int n = times.size();
+        if (n > 0 && times.get(n - 1) == time) {
+            // 同一时间点只保留最后的值，改回前一个数据点的值时该时间点不再是变化点
+            if (changeOnly && n > 1 && values.get(n - 2) == val) {
+                times.truncate(n - 1);
+                values.truncate(n - 1);
+                return;
+            }
+            values.set(n - 1, val);
+            return;
+        }
+        if (changeOnly && n > 0 && values.get(n - 1) == val) {
+            return;
+        }
+        times.add(time);
+        values.add(val);
+    }
+
+    @Override
+    public int size() {
+        return times.size();
+    }
+
+    @Override
+    public double getTime(int index) {
+        return times.get(index);
+    }
+
+    @Override
+    public long get(int index) {
+        return values.get(index);
+    }
+
+    @Override
+    void clear() {
+        super.clear();
+        times.clear();
+        values.clear();
+    }
+}
@@ -0,0 +1,114 @@
+package cn.softeng.statistics;
+
+/**
+ * 统计量的采样策略，决定时间序列在哪些时间点记录数据
+ * @date: 10/18/2026 11:10 AM
+ */
+public final class SamplingPolicy {
+
+    /**
+     * 默认策略：每次时钟推进都记录，与 EventManager 的时钟序列一一对应
+     */
+    public static final SamplingPolicy EVERY_ADVANCE = new SamplingPolicy(Type.EveryAdvance, 0.0d, 0);
+
+    /**
+     * 只在数据变化时记录
+     */
+    public static final SamplingPolicy CHANGE_ONLY = new SamplingPolicy(Type.ChangeOnly, 0.0d, 0);
+
+    private final Type type;
+
+    /**
+     * 采样间隔（秒），仅对 FixedInterval 有效
+     */
+    private final double interval;
+
+    /**
+     * 最多保留的数据点数，仅对 Decimated 有效
+     */
+    private final int maxPoints;
+
+    private SamplingPolicy(Type type, double interval, int maxPoints) {
+        this.type = type;
+        this.interval = interval;
+        this.maxPoints = maxPoints;
+    }
+
+    /**
+     * 按固定的仿真时间间隔采样，由组件自己调度的采样事件记录
+     * @param secs 采样间隔（秒）
+     * @return
+     */
+    public static SamplingPolicy fixedInterval(double secs) {
+        if (!(secs > 0.0d)) {
+            throw new IllegalArgumentException("Sampling interval must be positive: " + secs);
+        }
+        return new SamplingPolicy(Type.FixedInterval, secs, 0);
+    }
+
+    /**
+     * 流式抽稀：按桶保留最小值和最大值，数据点超过 maxPoints 时合并相邻的桶
+     * @param maxPoints 最多保留的数据点数
+     * @return
+     */
+    public static SamplingPolicy decimated(int maxPoints) {
+        if (maxPoints < 4) {
+            throw new IllegalArgumentException("Decimated series needs at least 4 points: " + maxPoints);
+        }
+        return new SamplingPolicy(Type.Decimated, 0.0d, maxPoints);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public double getInterval() {
+        return interval;
+    }
+
+    public int getMaxPoints() {
+        return maxPoints;
+    }
+
+    /**
+     * 该策略的数据是否由时钟推进时的统计更新记录（FixedInterval 由采样事件记录）
+     * @return
+     */
+    public boolean isRecordedOnAdvance() {
+        return type != Type.FixedInterval;
+    }
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case FixedInterval:
+                return type + "(" + interval + ")";
+            case Decimated:
+                return type + "(" + maxPoints + ")";
+            default:
+                return type.toString();
+        }
+    }
+
+    /**
+     * 采样策略类型枚举类
+     */
+    public enum Type {
+        /**
+         * 每次时钟推进记录一次
+         */
+        EveryAdvance,
+        /**
+         * 固定仿真时间间隔记录一次
+         */
+        FixedInterval,
+        /**
+         * 数据变化时记录
+         */
+        ChangeOnly,
+        /**
+         * 按桶保留最小值和最大值
+         */
+        Decimated,
+    }
+}
@@ -0,0 +1,173 @@
+package cn.softeng.statistics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 统计数据仓库：所有组件共用一列时间点，每个组件的每个统计量各占一列 long 数据
+ * 数据以原始类型按块保存，对外只提供不复制数据的只读视图
+ * @date: 10/18/2026 9:30 AM
+ */
+public final class StatisticsStore {
+    /**
+     * 收集统计数据的时间点（秒）
+     */
+    private final DoubleColumn times;
+
+    /**
+     * 在该仓库中创建的所有时间序列
+     */
+    private final ArrayList<TimeSeries> seriesList;
+
+    /**
+     * 流式写出统计数据的写出器，为null时不写出
+     */
+    private StatisticsWriter writer;
+
+    /**
+     * 是否在内存中保留统计数据，只写出到磁盘时可设为false，使内存占用不随仿真时长增长
+     */
+    private boolean retainData;
+
+    /**
+     * 重新开始保留数据后，下一个时间点需要为所有序列补记当前值
+     */
+    private boolean retentionResumed;
+
+    public StatisticsStore() {
+        times = new DoubleColumn();
+        seriesList = new ArrayList<>();
+        retainData = true;
+    }
+
+    public StatisticsWriter getWriter() {
+        return writer;
+    }
+
+    /**
+     * 设置流式写出统计数据的写出器，设为null时停止写出（不会关闭原来的写出器）
+     * @param writer
+     */
+    public void setWriter(StatisticsWriter writer) {
+        this.writer = writer;
+    }
+
+    public boolean isRetainData() {
+        return retainData;
+    }
+
+    /**
+     * 设置是否在内存中保留统计数据，通常在记录数据之前设置
+     * 运行期间重新开始保留数据时，不保留期间的时间点不会出现在时间列中，
+     * 之后的第一个时间点为所有序列补记其最近的值，不会沿用不保留之前的旧值
+     * @param retainData
+     */
+    public void setRetainData(boolean retainData) {
+        if (retainData && !this.retainData) {
+            retentionResumed = true;
+        }
+        this.retainData = retainData;
+    }
+
+    /**
+     * 将尚未写出的数据交给写出器的写线程
+     */
+    public void flush() {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * 添加一个时间点，若与最后一个时间点相同则不重复添加
+     * @param time 仿真时间（秒）
+     * @return 该时间点在时间列中的下标，不保留数据时返回-1
+     */
+    public int addTimePoint(double time) {
+        if (!retainData) {
+            return -1;
+        }
+        int n = times.size();
+        if (n == 0 || times.get(n - 1) != time) {
+            times.add(time);
+            n++;
+        }
+        if (retentionResumed) {
+            retentionResumed = false;
+            for (TimeSeries each : seriesList) {
+                each.resumeRetention(time);
+            }
+        }
+        return n - 1;
+    }
+
+    /**
+     * 创建一个与时间列对齐的时间序列
+     * @param name 序列名称
+     * @return
+     */
+    public TimeSeries createSeries(String name) {
+        return createSeries(name, SamplingPolicy.EVERY_ADVANCE);
+    }
+
+    /**
+     * 按指定的采样策略创建时间序列
+     * @param name 序列名称
+     * @param policy 采样策略
+     * @return
+     */
+    public TimeSeries createSeries(String name, SamplingPolicy policy) {
+        TimeSeries ret;
+        switch (policy.getType()) {
+            case EveryAdvance:
+                ret = new AlignedTimeSeries(this, name);
+                break;
+            case Decimated:
+                ret = new DecimatedTimeSeries(this, name, policy);
+                break;
+            default:
+                ret = new PointTimeSeries(this, name, policy);
+                break;
+        }
+        seriesList.add(ret);
+        return ret;
+    }
+
+    /**
+     * 从仓库中移除不再使用的时间序列，移除后 clear() 和重新开始保留数据都不再处理该序列
+     * @param series 由该仓库创建的时间序列
+     */
+    public void removeSeries(TimeSeries series) {
+        seriesList.remove(series);
+    }
+
+    /**
+     * 时间点的个数
+     * @return
+     */
+    public int size() {
+        return times.size();
+    }
+
+    public double getTime(int index) {
+        return times.get(index);
+    }
+
+    /**
+     * 返回时间列的只读视图，不复制数据
+     * @return
+     */
+    public List<Double> getTimeList() {
+        return times.asList();
+    }
+
+    /**
+     * 清空所有时间点和所有序列的数据，序列本身保留，可继续记录
+     */
+    public void clear() {
+        times.clear();
+        for (TimeSeries each : seriesList) {
+            each.clear();
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package cn.softeng.statistics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 将统计数据以 CSV 格式（time,series,value）流式写出到磁盘
+ * 仿真线程只把数据放入批次，批次满后交给后台写线程，由写线程格式化并通过 FileChannel 写出；
+ * 批次在两个有界队列之间循环使用，写线程跟不上时仿真线程会阻塞等待，因此内存占用固定
+ * 同一序列只在值变化时写出一行（固定间隔采样除外），读取时未出现的时间点沿用上一行的值
+ * 序列名称包含逗号、双引号或换行时，按 RFC 4180 用双引号括起并将双引号写两次
+ * @date: 10/18/2026 3:10 PM
+ */
+public final class StatisticsWriter implements AutoCloseable {
+    /**
+     * 每个批次包含的数据行数
+     */
+    private static final int BATCH_SIZE = 4096;
+
+    /**
+     * 批次的个数，即仿真线程最多领先写线程的批次数
+     */
+    private static final int BATCH_COUNT = 4;
+
+    private static final String HEADER = "time,series,value\n";
+
+    private final FileChannel channel;
+
+    /**
+     * 等待写出的批次
+     */
+    private final BlockingQueue<Batch> fullBatches;
+
+    /**
+     * 已写出、可以重新使用的批次
+     */
+    private final BlockingQueue<Batch> freeBatches;
+
+    private final Thread writerThread;
+
+    /**
+     * 仿真线程正在填充的批次
+     */
+    private Batch current;
+
+    /**
+     * 写线程遇到的异常，在仿真线程下一次调用时抛出
+     */
+    private volatile IOException failure;
+
+    private boolean closed;
+
+    public StatisticsWriter(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        channel.write(ByteBuffer.wrap(HEADER.getBytes(StandardCharsets.US_ASCII)));
+        fullBatches = new ArrayBlockingQueue<>(BATCH_COUNT + 1);
+        freeBatches = new ArrayBlockingQueue<>(BATCH_COUNT);
+        for (int i = 0; i < BATCH_COUNT; i++) {
+            freeBatches.add(new Batch());
+        }
+        current = takeBatch(freeBatches);
+        writerThread = new Thread(this::writeLoop, "statistics-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * 写出一行数据，由仿真线程调用
+     * @param time 仿真时间（秒）
+     * @param series 序列名称
+     * @param val 统计量的值
+     */
+    public void write(double time, String series, long val) {
+        checkFailure();
+        if (closed) {
+            throw new IllegalStateException("StatisticsWriter is closed");
+        }
+        current.add(time, series, val);
+        if (current.size == BATCH_SIZE) {
+            submit();
+        }
+    }
+
+    /**
+     * 将未满的批次交给写线程，使外部程序可以读到截至目前的数据
+     */
+    public void flush() {
+        checkFailure();
+        if (!closed && current.size > 0) {
+            submit();
+        }
+    }
+
+    /**
+     * 写出剩余的数据，等待写线程结束并关闭文件
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        if (current.size > 0) {
+            submit();
+        }
+        closed = true;
+        putBatch(Batch.END);
+        try {
+            writerThread.join();
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            failure = e;
+        }
+        checkFailure();
+    }
+
+    private void submit() {
+        putBatch(current);
+        current = takeBatch(freeBatches);
+    }
+
+    private void putBatch(Batch batch) {
+        try {
+            fullBatches.put(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while writing statistics", e);
+        }
+    }
+
+    private Batch takeBatch(BlockingQueue<Batch> queue) {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while writing statistics", e);
+        }
+    }
+
+    private void checkFailure() {
+        IOException e = failure;
+        if (e != null) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 写线程的主循环：取出批次，格式化后写入文件，再把批次放回空闲队列
+     */
+    private void writeLoop() {
+        StringBuilder sb = new StringBuilder(BATCH_SIZE * 32);
+        ByteBuffer buf = ByteBuffer.allocateDirect(64 * 1024);
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        while (true) {
+            Batch batch;
+            try {
+                batch = fullBatches.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (batch == Batch.END) {
+                return;
+            }
+            if (failure == null) {
+                try {
+                    sb.setLength(0);
+                    batch.format(sb);
+                    encode(sb, encoder, buf);
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            batch.size = 0;
+            freeBatches.add(batch);
+        }
+    }
+
+    private void encode(StringBuilder sb, CharsetEncoder encoder, ByteBuffer buf) throws IOException {
+        CharBuffer chars = CharBuffer.wrap(sb);
+        encoder.reset();
+        while (true) {
+            CoderResult result = encoder.encode(chars, buf, true);
+            if (result.isUnderflow()) {
+                break;
+            }
+            drain(buf);
+        }
+        encoder.flush(buf);
+        drain(buf);
+    }
+
+    private void drain(ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        buf.clear();
+    }
+
+    /**
+     * 一批待写出的数据，以原始类型数组保存
+     */
+    private static final class Batch {
+        /**
+         * 表示写出结束的批次
+         */
+        static final Batch END = new Batch(0);
+
+        final double[] times;
+        final String[] series;
+        final long[] values;
+        int size;
+
+        Batch() {
+            this(BATCH_SIZE);
+        }
+
+        Batch(int capacity) {
+            times = new double[capacity];
+            series = new String[capacity];
+            values = new long[capacity];
+        }
+
+        void add(double time, String name, long val) {
+            times[size] = time;
+            series[size] = name;
+            values[size] = val;
+            size++;
+        }
+
+        void format(StringBuilder sb) {
+            for (int i = 0; i < size; i++) {
+                sb.append(times[i]).append(',');
+                appendField(sb, series[i]);
+                sb.append(',').append(values[i]).append('\n');
+                series[i] = null;
+            }
+        }
+
+        /**
+         * 按 RFC 4180 写出一个文本字段
+         * @param sb
+         * @param field
+         */
+        static void appendField(StringBuilder sb, String field) {
+            boolean quote = false;
+            for (int i = 0; i < field.length(); i++) {
+                char c = field.charAt(i);
+                if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                    quote = true;
+                    break;
+                }
+            }
+            if (!quote) {
+                sb.append(field);
+                return;
+            }
+            sb.append('"');
+            for (int i = 0; i < field.length(); i++) {
+                char c = field.charAt(i);
+                if (c == '"') {
+                    sb.append('"');
+                }
+                sb.append(c);
+            }
+            sb.append('"');
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package cn.softeng.statistics;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * 某个组件某一统计量的时间序列，具体的存储方式由采样策略决定
+ * @date: 10/18/2026 9:45 AM
+ */
+public abstract class TimeSeries {
+    /**
+     * 创建该序列的统计数据仓库
+     */
+    final StatisticsStore store;
+
+    /**
+     * 序列名称，例如 "Server1.NumberAdded"
+     */
+    private final String name;
+
+    /**
+     * 该序列使用的采样策略
+     */
+    private final SamplingPolicy policy;
+
+    /**
+     * 最近一次写出到 StatisticsWriter 的值，用于跳过未变化的数据
+     */
+    private long lastWritten;
+    private boolean written;
+
+    /**
+     * 最近一次记录的值，不在内存中保留数据时也会更新
+     */
+    private long lastRecorded;
+    private boolean recorded;
+
+    TimeSeries(StatisticsStore store, String name, SamplingPolicy policy) {
+        this.store = store;
+        this.name = name;
+        this.policy = policy;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public SamplingPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * 在指定时间点记录数据
+     * 仓库设置了 StatisticsWriter 时同时写出到磁盘，仓库不保留数据时只写出不保存
+     * @param time 仿真时间（秒）
+     * @param val 统计量的值
+     */
+    public final void record(double time, long val) {
+        StatisticsWriter writer = store.getWriter();
+        if (writer != null) {
+            // 除固定间隔采样外，值未变化时不写出，读取时沿用上一行的值
+            boolean unchanged = written && lastWritten == val;
+            if (!unchanged || policy.getType() == SamplingPolicy.Type.FixedInterval) {
+                writer.write(time, name, val);
+                lastWritten = val;
+                written = true;
+            }
+        }
+        lastRecorded = val;
+        recorded = true;
+        if (store.isRetainData()) {
+            append(time, val);
+        }
+    }
+
+    /**
+     * 仓库重新开始保留数据时，在指定时间点补记最近一次记录的值
+     * @param time 仿真时间（秒）
+     */
+    void resumeRetention(double time) {
+        if (recorded) {
+            append(time, lastRecorded);
+        }
+    }
+
+    /**
+     * 将数据保存到序列中
+     * @param time 仿真时间（秒）
+     * @param val 统计量的值
+     */
+    abstract void append(double time, long val);
+
+    /**
+     * 序列中数据点的个数
+     * @return
+     */
+    public abstract int size();
+
+    /**
+     * 返回指定数据点的时间
+     * @param index
+     * @return
+     */
+    public abstract double getTime(int index);
+
+    /**
+     * 返回指定数据点的值
+     * @param index
+     * @return
+     */
+    public abstract long get(int index);
+
+    /**
+     * 返回时间的只读视图
+     * @return
+     */
+    public List<Double> getTimeList() {
+        return new TimeView();
+    }
+
+    /**
+     * 返回数据的只读视图
+     * @return
+     */
+    public List<Long> getValueList() {
+        return new ValueView();
+    }
+
+    /**
+     * 清空序列中的数据，清空后的第一个值总是会写出
+     */
+    void clear() {
+        written = false;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private class TimeView extends AbstractList<Double> implements RandomAccess {
+        @Override
+        public Double get(int index) {
+            return getTime(index);
+        }
+
+        @Override
+        public int size() {
+            return TimeSeries.this.size();
+        }
+    }
+
+    private class ValueView extends AbstractList<Long> implements RandomAccess {
+        @Override
+        public Long get(int index) {
+            return TimeSeries.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return TimeSeries.this.size();
+        }
+    }
+}
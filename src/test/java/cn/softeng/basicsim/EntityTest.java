@@ -1,9 +1,18 @@
 package cn.softeng.basicsim;
 
 import cn.softeng.processflow.EntityGenerator;
+import cn.softeng.processflow.SimEntity;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
 @Slf4j
 public class EntityTest {
 
@@ -23,6 +32,127 @@ public class EntityTest {
     }
 
 
+    /**
+     * 测试遍历期间删除实体、登记表被压缩后，迭代器是否仍按创建顺序遍历所有存活的实体
+     */
+    @Test
+    public void test_killDuringIteration_keepsOrder() {
+        List<RegistryTestEntity> created = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            created.add(new RegistryTestEntity());
+        }
+        int compactions = Entity.getRegistry().getCompactions();
+
+        List<RegistryTestEntity> visited = new ArrayList<>();
+        List<RegistryTestEntity> added = new ArrayList<>();
+        for (RegistryTestEntity each : Entity.getInstanceIterator(RegistryTestEntity.class)) {
+            visited.add(each);
+            if (visited.size() == 10) {
+                // 删除大部分实体并创建足够多的新实体，触发登记表压缩
+                for (int i = 0; i < created.size(); i++) {
+                    if (i % 10 != 0) {
+                        created.get(i).kill();
+                    }
+                }
+                for (int i = 0; i < 5000; i++) {
+                    added.add(new RegistryTestEntity());
+                }
+            }
+        }
+
+        assertTrue(Entity.getRegistry().getCompactions() > compactions);
+        assertEquals(10 + 299 + 5000, visited.size());
+        for (int i = 1; i < visited.size(); i++) {
+            assertTrue(visited.get(i - 1).getEntityNumber() < visited.get(i).getEntityNumber());
+            if (i >= 10) {
+                assertFalse(visited.get(i).testFlag(Entity.FLAG_DEAD));
+            }
+        }
+
+        for (RegistryTestEntity each : created) {
+            each.kill();
+        }
+        for (RegistryTestEntity each : added) {
+            each.kill();
+        }
+        assertFalse(Entity.getInstanceIterator(RegistryTestEntity.class).hasNext());
+    }
+
+    /**
+     * 测试不同具体类型的实体分桶保存后，按父类型遍历时是否仍按创建顺序，按具体类型遍历时是否只返回该类型
+     */
+    @Test
+    public void test_perClassBuckets_mergeInCreationOrder() {
+        List<RegistryTestEntity> created = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            created.add(i % 3 == 0 ? new SubRegistryTestEntity() : new RegistryTestEntity());
+        }
+
+        List<RegistryTestEntity> clones = new ArrayList<>();
+        for (RegistryTestEntity each : Entity.getClonesOfIterable(RegistryTestEntity.class)) {
+            clones.add(each);
+        }
+        int instances = 0;
+        for (RegistryTestEntity each : Entity.getInstanceIterator(RegistryTestEntity.class)) {
+            assertEquals(RegistryTestEntity.class, each.getClass());
+            instances++;
+        }
+
+        assertEquals(created, clones);
+        assertEquals(200, instances);
+        for (RegistryTestEntity each : created) {
+            each.kill();
+        }
+    }
+
+    /**
+     * 测试生成的临时实体不登记到全局集合中，名称按需生成
+     */
+    @Test
+    public void test_generateCopy_notRegistered() {
+        SimEntity proto = new SimEntity("GenerateCopyProto");
+        SimEntity copy = (SimEntity) Entity.generateCopy(proto, "GenerateCopyGen", 3);
+
+        assertTrue(copy.testFlag(Entity.FLAG_GENERATED));
+        assertEquals("GenerateCopyGen_3", copy.getName());
+        assertNull(Entity.getNamedEntity("GenerateCopyGen_3"));
+        for (SimEntity each : Entity.getInstanceIterator(SimEntity.class)) {
+            assertTrue(each != copy);
+        }
+
+        copy.kill();
+        assertTrue(copy.testFlag(Entity.FLAG_DEAD));
+        proto.kill();
+    }
+
+    /**
+     * 测试 SimEntity 的子类作为原型时，通过 (boolean) 构造器生成实体，同样不登记到全局集合中
+     */
+    @Test
+    public void test_generateCopy_subclassNotRegistered() {
+        GeneratedTestEntity proto = new GeneratedTestEntity();
+        int before = Entity.getAll().size();
+        Entity copy = Entity.generateCopy(proto, "GenerateSubGen", 1);
+
+        assertTrue(copy instanceof GeneratedTestEntity);
+        assertTrue(copy.testFlag(Entity.FLAG_GENERATED));
+        assertEquals(before, Entity.getAll().size());
+        copy.kill();
+        proto.kill();
+    }
+
+    private static class RegistryTestEntity extends Entity {}
+
+    private static class GeneratedTestEntity extends SimEntity {
+        GeneratedTestEntity() {}
+
+        GeneratedTestEntity(boolean generated) {
+            super(generated);
+        }
+    }
+
+    private static class SubRegistryTestEntity extends RegistryTestEntity {}
+
     public static <T extends Entity> T fastCopy(T entity, String name) throws IllegalAccessException, InstantiationException {
         Class proto = entity.getClass();
         T ret = (T) proto.newInstance();
@@ -0,0 +1,69 @@
+package cn.softeng.distributions;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 随机分布测试类，主要测试随机数流是否可重现，以及各分布的样本均值是否接近理论均值
+ * @date: 10/18/2026 11:20 PM
+ */
+public class DistributionTest {
+
+    @Test
+    public void test_streams_reproducibleAndIndependent() {
+        RandomStream a = new RandomStream(42, 1);
+        RandomStream b = new RandomStream(42, 1);
+        RandomStream c = new RandomStream(42, 2);
+        for (int i = 0; i < 100; i++) {
+            long x = a.nextLong();
+            assertEquals(x, b.nextLong());
+            assertNotEquals(x, c.nextLong());
+        }
+        for (int i = 0; i < 1000; i++) {
+            int n = a.nextInt(7);
+            assertTrue(n >= 0 && n < 7);
+            double d = a.nextDouble();
+            assertTrue(d >= 0.0 && d < 1.0);
+        }
+    }
+
+    @Test
+    public void test_sampleMeans_closeToMean() {
+        Distribution[] distributions = {
+                new ConstantDistribution(3.0),
+                new ExponentialDistribution(2.0),
+                new ErlangDistribution(2.0, 3),
+                new LognormalDistribution(2.0, 0.5),
+                new TriangularDistribution(1.0, 2.0, 6.0),
+                new EmpiricalDistribution(new double[] {1.0, 2.0, 5.0}, new double[] {1, 2, 1}),
+                new PiecewiseDistribution(new double[] {0.0, 1.0, 4.0}, new double[] {0.0, 0.5, 1.0})
+        };
+        RandomStream stream = new RandomStream(7, 0);
+        int n = 200000;
+        for (Distribution each : distributions) {
+            double sum = 0.0;
+            for (int i = 0; i < n; i++) {
+                sum += each.sample(stream);
+            }
+            assertEquals(each.getClass().getSimpleName(), each.getMean(), sum / n, each.getMean() * 0.02);
+        }
+    }
+
+    @Test
+    public void test_aliasTable_matchesWeights() {
+        AliasTable table = new AliasTable(new double[] {3, 0, 7, 10});
+        RandomStream stream = new RandomStream(1, 1);
+        int[] counts = new int[4];
+        int n = 200000;
+        for (int i = 0; i < n; i++) {
+            counts[table.sample(stream)]++;
+        }
+        assertEquals(0, counts[1]);
+        assertEquals(0.15, (double) counts[0] / n, 0.005);
+        assertEquals(0.35, (double) counts[2] / n, 0.005);
+        assertEquals(0.50, (double) counts[3] / n, 0.005);
+    }
+}
@@ -0,0 +1,70 @@
+package cn.softeng.processflow;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Assign测试类，主要测试按权重分配的比例，以及权重相同的属性值是否被正确区分
+ * @date: 10/18/2026 11:40 PM
+ */
+public class AssignTest {
+
+    @Test
+    public void test_weightedAssign_matchesWeights() {
+        Map<String, Integer> map = new HashMap<>();
+        map.put("red", 3);
+        map.put("black", 3);
+        map.put("white", 4);
+        map.put("green", 0);
+        Assign assign = new Assign("AssignTest");
+        assign.addAssignment(map);
+
+        Map<String, Integer> counts = new HashMap<>();
+        int n = 100000;
+        for (int i = 0; i < n; i++) {
+            counts.merge(assign.randomAssign(), 1, Integer::sum);
+        }
+        assertEquals(0.3, counts.get("red") / (double) n, 0.01);
+        assertEquals(0.3, counts.get("black") / (double) n, 0.01);
+        assertEquals(0.4, counts.get("white") / (double) n, 0.01);
+        assertEquals(null, counts.get("green"));
+
+        // 洗牌策略每一轮严格按权重分配
+        counts.clear();
+        for (int i = 0; i < 20; i++) {
+            counts.merge(assign.shuffleAssign(), 1, Integer::sum);
+        }
+        assertEquals(6, (int) counts.get("red"));
+        assertEquals(6, (int) counts.get("black"));
+        assertEquals(8, (int) counts.get("white"));
+    }
+
+    /**
+     * 兼容旧接口：传入不同的映射时按新的映射分配
+     */
+    @Test
+    @SuppressWarnings("deprecation")
+    public void test_assignWithMap_recompiles() {
+        Map<String, Integer> red = new HashMap<>();
+        red.put("red", 1);
+        Map<String, Integer> black = new HashMap<>();
+        black.put("black", 1);
+        Assign assign = new Assign("AssignMapTest");
+
+        assertEquals("red", assign.randomAssign(red));
+        assertEquals("black", assign.randomAssign(black));
+        assertEquals("red", assign.shuffleAssign(red));
+        assertEquals("black", assign.shuffleAssign(black));
+        assertEquals("black", assign.shuffleAssign());
+
+        // 修改传入的映射不影响已编译的分配，再次传入时才重新编译
+        black.put("black", 0);
+        black.put("white", 1);
+        assertEquals("black", assign.randomAssign());
+        assertEquals("white", assign.randomAssign(black));
+    }
+}
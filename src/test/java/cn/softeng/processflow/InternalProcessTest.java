@@ -1,10 +1,30 @@
 package cn.softeng.processflow;
 
+import cn.softeng.DesSim;
+import cn.softeng.basicsim.Entity;
+import cn.softeng.basicsim.ErrorException;
 import cn.softeng.basicsim.InitModelTarget;
+import cn.softeng.basicsim.StartUpTarget;
+import cn.softeng.distributions.ConstantDistribution;
 import cn.softeng.events.EventManager;
+import cn.softeng.events.ProcessTarget;
+import cn.softeng.states.StateEntity;
+import cn.softeng.states.StateEntityListener;
+import cn.softeng.states.StateRecord;
+import cn.softeng.statistics.SamplingPolicy;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
 /**
  * @date: 12/23/2020 10:48 AM
  */
@@ -104,4 +124,1008 @@ public class InternalProcessTest {
 
     }
 
+    /**
+     * 测试按固定间隔采样时，统计数据是否只在采样时间点记录
+     * 即： EntityGenerator(实体产生间隔1s) -> Queue1 -> Server1(服务时间2s) -> EntitySink, 每5s采样一次Server1
+     * 仿真运行的截止时间是50，采样时间点为 0, 5, 10, ..., 50
+     */
+    @Test
+    public void test_fixedIntervalSampling_noError() throws InterruptedException {
+        EventManager evt = newEventManager();
+        SingleServerModel model = new SingleServerModel("Sampling", 2);
+        model.server.setSamplingPolicy(DesSim.NumberProcessed, SamplingPolicy.fixedInterval(5));
+
+        evt.scheduleProcessExternal(0, 0, false, new InitModelTarget(), null);
+        evt.resume(evt.secondsToNearestTick(50));
+        waitUntilPaused(evt);
+
+        List<Double> times = model.server.getTimeList(DesSim.NumberProcessed);
+        List<Long> values = model.server.getNumProcessedList();
+        log.debug("{}", times);
+        log.debug("{}", values);
+        assertEquals(11, times.size());
+        for (int i = 0; i < times.size(); i++) {
+            assertEquals(5.0 * i, times.get(i), 1e-9);
+        }
+        assertEquals(model.server.getNumberProcessed(), (long) values.get(10));
+    }
+
+    /**
+     * 测试运行后修改一个统计量的采样策略时，只重新创建该统计量的时间序列
+     * 即： EntityGenerator(实体产生间隔1s) -> Queue1 -> Server1(服务时间2s) -> EntitySink, 运行到10s
+     */
+    @Test
+    public void test_samplingPolicyChange_keepsOtherSeries() throws InterruptedException {
+        EventManager evt = newEventManager();
+        SingleServerModel model = new SingleServerModel("PolicyChange", 2);
+
+        evt.scheduleProcessExternal(0, 0, false, new InitModelTarget(), null);
+        evt.resume(evt.secondsToNearestTick(10));
+        waitUntilPaused(evt);
+        int added = model.server.getNumAddList().size();
+        assertTrue(added > 0);
+        assertTrue(model.server.getNumProcessedList().size() > 0);
+
+        model.server.setSamplingPolicy(DesSim.NumberProcessed, SamplingPolicy.CHANGE_ONLY);
+        assertEquals(SamplingPolicy.CHANGE_ONLY, model.server.getSamplingPolicy(DesSim.NumberProcessed));
+        assertEquals(added, model.server.getNumAddList().size());
+        assertEquals(0, model.server.getNumProcessedList().size());
+    }
+
+    /**
+     * 测试按固定间隔采样时，采样事件是否不影响 hasEvent() 和 getNextEventTime()
+     * 即： EntityGenerator(实体产生间隔1s，共5个实体) -> Queue1 -> Server1(服务时间2s) -> EntitySink, 每0.25s采样一次Server1
+     * 3.5s 时下一个非采样事件是 4s 的实体到达，所有实体在 11s 前处理完毕，运行到30s时只剩下采样事件
+     */
+    @Test
+    public void test_fixedIntervalSampling_noPendingEvent() throws InterruptedException {
+        EventManager evt = newEventManager();
+        SingleServerModel model = new SingleServerModel("SamplingDrain", 2);
+        model.generator.setMaxNumber(5);
+        model.server.setSamplingPolicy(DesSim.NumberProcessed, SamplingPolicy.fixedInterval(0.25));
+
+        // 只初始化本模型的实体，其他测试登记的实体会继续产生事件
+        final Entity[] entities = {model.generator, model.queue, model.server, model.sink};
+        evt.scheduleProcessExternal(0, 0, false, new ProcessTarget() {
+            @Override
+            public void process() {
+                for (Entity each : entities) {
+                    each.earlyInit();
+                }
+                for (Entity each : entities) {
+                    each.lateInit();
+                }
+                for (Entity each : entities) {
+                    EventManager.scheduleTicks(0, 5, true, new StartUpTarget(each), null);
+                }
+            }
+
+            @Override
+            public String getDescription() {
+                return "SamplingDrain.init";
+            }
+        }, null);
+        evt.resume(evt.secondsToNearestTick(3.5));
+        waitUntilPaused(evt);
+        assertTrue(evt.hasEvent());
+        assertEquals(4.0, evt.getNextEventTime(), 1e-9);
+
+        evt.resume(evt.secondsToNearestTick(30));
+        waitUntilPaused(evt);
+        assertEquals(5, model.server.getNumberProcessed());
+        assertFalse(evt.hasEvent());
+    }
+
+    /**
+     * 测试使用实体池时，EntitySink 归还的实体是否被 EntityGenerator 重新使用并清空属性，以及重复归还是否报错
+     * 即： EntityGenerator(实体产生间隔1s) -> Assign(全部为 red) -> Queue1 -> Server1(服务时间0.5s) -> EntitySink
+     * 系统中同时只有一个实体，除第一个实体外每次生成都从池中取得，运行到49.8s时所有实体都已归还
+     */
+    @Test
+    public void test_entityPool_reuseReleased() throws InterruptedException {
+        EventManager evt = newEventManager();
+        SingleServerModel model = new SingleServerModel("Pool", 0.5);
+        SimEntityPool pool = new SimEntityPool();
+        Assign assign = new Assign("PoolAssign");
+        Map<String, Integer> map = new HashMap<>();
+        map.put("red", 1);
+        assign.addAssignment(map);
+        model.generator.setNextComponent(assign);
+        assign.setNextComponent(model.queue);
+        model.generator.setEntityPool(pool);
+        model.sink.setEntityPool(pool);
+
+        evt.scheduleProcessExternal(0, 0, false, new InitModelTarget(), null);
+        evt.resume(evt.secondsToNearestTick(49.8));
+        waitUntilPaused(evt);
+
+        log.debug("acquired: {}, hits: {}", pool.getAcquireCount(), pool.getHitCount());
+        assertEquals(model.sink.getNumberAdded(), pool.getReleaseCount());
+        assertEquals(assign.getNumberAdded(), pool.getAcquireCount());
+        assertEquals(pool.getAcquireCount() - 1, pool.getHitCount());
+        assertEquals(1, pool.size());
+
+        // 池中的实体经过 Assign，归还时清空了分配的类别和属性
+        SimEntity released = (SimEntity) pool.acquire(new SimEntity(true), "PoolTest", 1);
+        assertEquals(pool.getAcquireCount() - 1, pool.getHitCount());
+        assertEquals(-1, released.getCategoryId());
+        assertTrue(released.getAttribute().isEmpty());
+        pool.release(released);
+        try {
+            pool.release(released);
+            fail("double release should be rejected");
+        } catch (ErrorException e) {
+            log.debug(e.getMessage());
+        }
+    }
+
+    /**
+     * 测试 Server 的工作/空闲状态时间、周期时间统计及利用率，以及状态监听器是否只收到所注册实体的状态切换
+     * 即： EntityGenerator(实体产生间隔1s) -> Queue1 -> Server1(服务时间0.5s) -> EntitySink, 利用率约为0.5
+     */
+    @Test
+    public void test_serverUtilisation_noError() throws InterruptedException {
+        EventManager evt = newEventManager();
+        SingleServerModel model = new SingleServerModel("State", 0.5);
+        Server server = model.server;
+
+        final int[] changes = new int[1];
+        server.addStateListener(new StateEntityListener() {
+            @Override
+            public boolean isWatching(StateEntity ent) {
+                return true;
+            }
+
+            @Override
+            public void updateForStateChange(StateEntity ent, StateRecord prev, StateRecord next) {
+                assertTrue(ent == server);
+                changes[0]++;
+            }
+        });
+
+        evt.scheduleProcessExternal(0, 0, false, new InitModelTarget(), null);
+        evt.resume(evt.secondsToNearestTick(50));
+        waitUntilPaused(evt);
+
+        long simTicks = evt.getTicks();
+        double utilisation = server.getUtilisation(simTicks);
+        log.debug("utilisation: {}, state changes: {}", utilisation, changes[0]);
+        assertEquals(0.5, utilisation, 0.02);
+        assertTrue(changes[0] >= 98);
+        // 每个离开的实体工作0.5s，50s 时到达的实体刚开始服务
+        long workingTicks = server.getTicksInState(server.getState("Working"), simTicks);
+        assertEquals(model.sink.getNumberAdded() * evt.secondsToNearestTick(0.5), workingTicks);
+        assertEquals(workingTicks, server.getWorkingTicks(simTicks));
+        assertEquals(simTicks - workingTicks, server.getTicksInState(server.getState("Idle"), simTicks));
+        // 每个周期空闲0.5s、工作0.5s，离开工作状态时周期结束
+        assertEquals(evt.secondsToNearestTick(0.5), server.getState("Working").getCompletedCycleTicks());
+        assertEquals(evt.secondsToNearestTick(0.5), server.getState("Idle").getCompletedCycleTicks());
+    }
+
+    /**
+     * 测试运行期间开始考虑违约时，之前入队的实体不违约，之后入队的实体按违约时间离开队列
+     * 即： EntityGenerator(实体产生间隔1s) -> Queue1(无使用者，违约时间2s)，2.5s 时开始考虑违约，运行到6.5s
+     * 3s 和 4s 到达的实体分别在 5s 和 6s 违约，0..2s 到达的实体一直留在队列中
+     */
+    @Test
+    public void test_queueRenegeEnabledLater_noError() throws InterruptedException {
+        EventManager evt = newEventManager();
+        EntityGenerator generator = new EntityGenerator();
+        generator.setName("LateRenegeGenerator");
+        Queue queue = new Queue();
+        queue.setName("LateRenegeQueue");
+        EntitySink renegeSink = new EntitySink();
+        renegeSink.setName("LateRenegeSink");
+        generator.setNextComponent(queue);
+        queue.setRenegeTime(2);
+        queue.setRenegeDestination(renegeSink);
+
+        evt.scheduleProcessExternal(0, 0, false, new InitModelTarget(), null);
+        evt.scheduleProcessExternal(evt.secondsToNearestTick(2.5), 0, false, new ProcessTarget() {
+            @Override
+            public void process() {
+                queue.setRenegeCondition(true);
+            }
+
+            @Override
+            public String getDescription() {
+                return "LateRenegeQueue.setRenegeCondition";
+            }
+        }, null);
+        evt.resume(evt.secondsToNearestTick(6.5));
+        waitUntilPaused(evt);
+
+        assertEquals(2, queue.getNumberReneged());
+        assertEquals(2, renegeSink.getNumberAdded());
+        assertEquals(5, queue.getCount());
+        assertRingPositions(queue, true);
+    }
+
+    /**
+     * 测试兼容的按实体违约接口：移除队列中间和队首的实体，已离开队列的实体不再违约
+     * 即： EntityGenerator(实体产生间隔1s) -> Queue1(无使用者)，3.5s 时让第2个和第1个实体违约，运行到4.2s
+     */
+    @Test
+    @SuppressWarnings("deprecation")
+    public void test_queueRenegeEntity_noError() throws InterruptedException {
+        EventManager evt = newEventManager();
+        EntityGenerator generator = new EntityGenerator();
+        generator.setName("RenegeEntityGenerator");
+        Queue queue = new Queue();
+        queue.setName("RenegeEntityQueue");
+        EntitySink renegeSink = new EntitySink();
+        renegeSink.setName("RenegeEntitySink");
+        generator.setNextComponent(queue);
+        queue.setRenegeCondition(true);
+        queue.setRenegeTime(100);
+        queue.setRenegeDestination(renegeSink);
+
+        final Entity[] reneged = new Entity[2];
+        evt.scheduleProcessExternal(0, 0, false, new InitModelTarget(), null);
+        evt.scheduleProcessExternal(evt.secondsToNearestTick(3.5), 0, false, new ProcessTarget() {
+            @Override
+            public void process() {
+                reneged[0] = queue.getEntity(1);
+                queue.renegeAction(reneged[0]);
+                reneged[1] = queue.getEntity(0);
+                queue.renegeAction(reneged[1]);
+                queue.renegeAction(reneged[0]);
+            }
+
+            @Override
+            public String getDescription() {
+                return "RenegeEntityQueue.renegeAction";
+            }
+        }, null);
+        evt.resume(evt.secondsToNearestTick(4.2));
+        waitUntilPaused(evt);
+
+        assertEquals(2, queue.getNumberReneged());
+        assertEquals(2, renegeSink.getNumberAdded());
+        assertEquals(reneged[1], renegeSink.getReceivedEntity());
+        assertEquals(3, queue.getCount());
+        assertEquals(-1, queue.getPosition(reneged[0]));
+        assertEquals(-1, queue.getPosition(reneged[1]));
+        assertRingPositions(queue, true);
+    }
+
+    /**
+     * 测试实体等待超时后是否离开队列，以及离开队列后违约事件是否不再生效
+     * 即： EntityGenerator(实体产生间隔1s) -> Queue1(违约时间3s) -> Server1(服务时间5s) -> EntitySink
+     *                                            └─ 超时 -> RenegeSink
+     */
+    @Test
+    public void test_queueRenege_noError() throws InterruptedException {
+        EventManager evt = newEventManager();
+        SingleServerModel model = new SingleServerModel("Renege", 5);
+        Queue queue = model.queue;
+        EntitySink renegeSink = new EntitySink();
+        renegeSink.setName("RenegedSink");
+        queue.setRenegeCondition(true);
+        queue.setRenegeTime(3);
+        queue.setRenegeDestination(renegeSink);
+
+        evt.scheduleProcessExternal(0, 0, false, new InitModelTarget(), null);
+        evt.resume(evt.secondsToNearestTick(100));
+        waitUntilPaused(evt);
+
+        log.debug("reneged: {}, served: {}, waiting: {}", queue.getNumberReneged(), model.sink.getNumberAdded(), queue.getCount());
+        assertEquals(queue.getNumberReneged(), renegeSink.getNumberAdded());
+        assertEquals(queue.getNumberAdded(), queue.getNumberProcessed() + queue.getCount());
+        assertEquals(queue.getNumberProcessed(), model.server.getNumberAdded() + queue.getNumberReneged());
+        assertTrue(queue.getNumberReneged() > 50);
+        assertTrue(queue.getCount() <= 4);
+    }
+
+    /**
+     * 测试队列的平均长度和等待时间统计
+     * 即： EntityGenerator(实体产生间隔1s，共10个) -> Queue1 -> Server1(服务时间2s) -> EntitySink
+     * 第k个实体在 k 时刻到达、2k 时刻开始服务，等待时间为 k，运行到100s时平均队列长度为 45/100
+     * 等待时间为 0..9s，p 分位数为 ceil(p/10)-1 秒
+     */
+    @Test
+    public void test_queueStatistics_noError() throws InterruptedException {
+        EventManager evt = newEventManager();
+        SingleServerModel model = new SingleServerModel("QueueStats", 2);
+        Queue queue = model.queue;
+        model.generator.setMaxNumber(10);
+
+        evt.scheduleProcessExternal(0, 0, false, new InitModelTarget(), null);
+        evt.resume(evt.secondsToNearestTick(100));
+        waitUntilPaused(evt);
+
+        double secsPerTick = evt.ticksToSeconds(1);
+        log.debug("average length: {}, average wait: {}", queue.getAverageQueueLength(evt.getCurrentTime()),
+                queue.getQueueTimes().getMean() * secsPerTick);
+        assertEquals(10, queue.getQueueTimes().getCount());
+        assertEquals(0.45, queue.getAverageQueueLength(evt.getCurrentTime()), 1e-6);
+        assertEquals(4.5, queue.getQueueTimes().getMean() * secsPerTick, 1e-6);
+        assertEquals(0, queue.getQueueTimes().getMin());
+        assertEquals(9.0, queue.getQueueTimes().getMax() * secsPerTick, 1e-6);
+        for (double p : new double[] {10, 25, 50, 75, 90, 100}) {
+            double expected = Math.ceil(p / 10) - 1;
+            assertEquals(expected, queue.getQueueTimes().getPercentile(p) * secsPerTick, expected / 32);
+        }
+        assertEquals(0, queue.getMinElements());
+        assertEquals(5, queue.getMaxElements());
+    }
+
+    /**
+     * 测试队列在优先级改变时由环形缓冲区转为有序集合后，排队顺序是否正确
+     * 即： EntityGenerator(实体产生间隔1s) -> Queue1(无使用者)，3.5s 时清空统计数据，5.5s 时将优先级由 0 改为 -1，运行到10s
+     * 6..10s 到达的实体排在 0..5s 到达的实体之前，各组内部先进先出
+     */
+    @Test
+    public void test_queuePriorityChange_orderKept() throws InterruptedException {
+        EventManager evt = newEventManager();
+
+        EntityGenerator generator = new EntityGenerator();
+        generator.setName("RingGenerator");
+        Queue queue = new Queue();
+        queue.setName("RingQueue");
+        generator.setNextComponent(queue);
+
+        evt.scheduleProcessExternal(0, 0, false, new InitModelTarget(), null);
+        evt.scheduleProcessExternal(evt.secondsToNearestTick(3.5), 0, false, new ProcessTarget() {
+            @Override
+            public void process() {
+                queue.clearStatistics();
+            }
+
+            @Override
+            public String getDescription() {
+                return "RingQueue.clearStatistics";
+            }
+        }, null);
+        evt.scheduleProcessExternal(evt.secondsToNearestTick(5.5), 0, false, new ProcessTarget() {
+            @Override
+            public void process() {
+                queue.setPriority(-1);
+            }
+
+            @Override
+            public String getDescription() {
+                return "RingQueue.setPriority";
+            }
+        }, null);
+        evt.resume(evt.secondsToNearestTick(10));
+        waitUntilPaused(evt);
+
+        assertEquals(11, queue.getCount());
+        // 3.5s 清空统计数据时队列中有4个实体，之后队列只增不减
+        assertEquals(4, queue.getMinElements());
+        assertEquals(11, queue.getMaxElements());
+        long[] numbers = new long[11];
+        for (int i = 0; i < 11; i++) {
+            Entity each = queue.getEntity(i);
+            numbers[i] = each.getEntityNumber();
+            assertEquals(i, queue.getPosition(each));
+        }
+        for (int i = 1; i < 11; i++) {
+            if (i == 5) {
+                assertTrue(numbers[4] > numbers[10]);
+                continue;
+            }
+            assertTrue(numbers[i - 1] < numbers[i]);
+        }
+    }
+
+    /**
+     * 测试环形缓冲区中由入队序号得到的排队位置，包括从两端移除实体之后
+     * 即： EntityGenerator(实体产生间隔1s) -> Queue1(FIFO，无使用者)
+     *     EntityGenerator(实体产生间隔1s) -> Queue2(LIFO，违约时间2.5s) -> 超时 -> EntitySink
+     * 第k个实体在 k+2.5 时刻违约，4.2s 时 Queue2 中剩下 2..4 号实体，10s 时剩下 8..10 号实体
+     */
+    @Test
+    public void test_ringQueuePosition_noError() throws InterruptedException {
+        EventManager evt = newEventManager();
+
+        EntityGenerator fifoGenerator = new EntityGenerator();
+        fifoGenerator.setName("PositionFifoGenerator");
+        Queue fifoQueue = new Queue();
+        fifoQueue.setName("PositionFifoQueue");
+        fifoGenerator.setNextComponent(fifoQueue);
+
+        EntityGenerator lifoGenerator = new EntityGenerator();
+        lifoGenerator.setName("PositionLifoGenerator");
+        Queue lifoQueue = new Queue();
+        lifoQueue.setName("PositionLifoQueue");
+        lifoQueue.setFifo(false);
+        lifoQueue.setRenegeCondition(true);
+        lifoQueue.setRenegeTime(2.5);
+        EntitySink renegeSink = new EntitySink();
+        renegeSink.setName("PositionRenegeSink");
+        lifoQueue.setRenegeDestination(renegeSink);
+        lifoGenerator.setNextComponent(lifoQueue);
+
+        evt.scheduleProcessExternal(0, 0, false, new InitModelTarget(), null);
+        evt.resume(evt.secondsToNearestTick(4.2));
+        waitUntilPaused(evt);
+        assertEquals(5, fifoQueue.getCount());
+        assertEquals(3, lifoQueue.getCount());
+        assertRingPositions(fifoQueue, true);
+        assertRingPositions(lifoQueue, false);
+        assertEquals(-1, lifoQueue.getPosition(renegeSink.getReceivedEntity()));
+
+        // 建立序号映射之后，入队和违约移除时继续维护
+        evt.resume(evt.secondsToNearestTick(10));
+        waitUntilPaused(evt);
+        assertEquals(11, fifoQueue.getCount());
+        assertEquals(3, lifoQueue.getCount());
+        assertEquals(8, renegeSink.getNumberAdded());
+        assertRingPositions(fifoQueue, true);
+        assertRingPositions(lifoQueue, false);
+        assertEquals(-1, lifoQueue.getPosition(renegeSink.getReceivedEntity()));
+    }
+
+    /**
+     * 测试环形缓冲区清空后重新入队时，排队位置是否仍然正确
+     * 即： EntityGenerator(实体产生间隔1s) -> Queue1(FIFO，无使用者)，2.5s 时查询排队位置后清空队列，运行到6.5s
+     */
+    @Test
+    public void test_ringQueuePositionAfterEmpty_noError() throws InterruptedException {
+        EventManager evt = newEventManager();
+        EntityGenerator generator = new EntityGenerator();
+        generator.setName("RefillGenerator");
+        Queue queue = new Queue();
+        queue.setName("RefillQueue");
+        generator.setNextComponent(queue);
+
+        final Entity[] removed = new Entity[1];
+        evt.scheduleProcessExternal(0, 0, false, new InitModelTarget(), null);
+        evt.scheduleProcessExternal(evt.secondsToNearestTick(2.5), 0, false, new ProcessTarget() {
+            @Override
+            public void process() {
+                assertEquals(2, queue.getPosition(queue.getEntity(2)));
+                while (!queue.isEmpty()) {
+                    removed[0] = queue.removeFirst();
+                }
+            }
+
+            @Override
+            public String getDescription() {
+                return "RefillQueue.removeAll";
+            }
+        }, null);
+        evt.resume(evt.secondsToNearestTick(6.5));
+        waitUntilPaused(evt);
+
+        assertEquals(3, queue.getNumberProcessed());
+        assertEquals(4, queue.getCount());
+        assertEquals(-1, queue.getPosition(removed[0]));
+        assertRingPositions(queue, true);
+    }
+
+    /**
+     * 检查队列中每个实体的排队位置，并检查排队顺序与入队顺序一致（FIFO）或相反（LIFO）
+     */
+    private static void assertRingPositions(Queue queue, boolean fifo) {
+        for (int i = 0; i < queue.getCount(); i++) {
+            Entity each = queue.getEntity(i);
+            assertEquals(i, queue.getPosition(each));
+            if (i > 0) {
+                long prev = queue.getEntity(i - 1).getEntityNumber();
+                assertEquals(fifo, prev < each.getEntityNumber());
+            }
+        }
+    }
+
+    /**
+     * 测试定向分派：4个 Server 共用一个队列，同时最多有3个 Server 在工作
+     * 即： EntityGenerator(实体产生间隔1s) -> Queue1 -> Server1..4(服务时间2.5s) -> EntitySink
+     * FirstIdle 时第4个 Server 不会被分派到实体，RoundRobin 时每个 Server 都会被分派到实体
+     */
+    @Test
+    public void test_queueDispatch_noError() throws InterruptedException {
+        long[] firstIdle = runDispatch(DispatchPolicy.FirstIdle);
+        long[] roundRobin = runDispatch(DispatchPolicy.RoundRobin);
+        long[] leastUtilised = runDispatch(DispatchPolicy.LeastUtilised);
+        log.debug("first idle: {}, {}, {}, {}", firstIdle[0], firstIdle[1], firstIdle[2], firstIdle[3]);
+        log.debug("round robin: {}, {}, {}, {}", roundRobin[0], roundRobin[1], roundRobin[2], roundRobin[3]);
+
+        assertEquals(0, firstIdle[3]);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(roundRobin[i] >= 9);
+            assertTrue(leastUtilised[i] >= 9);
+        }
+        assertEquals(firstIdle[4], roundRobin[4]);
+        assertEquals(firstIdle[4], leastUtilised[4]);
+    }
+
+    /**
+     * 测试定向分派时，同一时刻到达的实体全部入队后才分派，仍按排队方式选择实体
+     * 即： EntityGenerator(1s 时同时产生2个实体) -> Queue1(LIFO) -> Server1(服务时间1s) -> EntitySink
+     * 后产生的第2个实体先被服务，2s 时离开；第1个实体在 3s 时离开
+     */
+    @Test
+    public void test_queueDispatch_sameTickArrivalsOrdered() throws InterruptedException {
+        EventManager evt = newEventManager();
+        SingleServerModel model = new SingleServerModel("SameTick", 1);
+        model.generator.setFirstArrivalTime(1);
+        model.generator.setEntitiesPerArrival(2);
+        model.generator.setMaxNumber(2);
+        model.queue.setFifo(false);
+        model.queue.setDispatchPolicy(DispatchPolicy.FirstIdle);
+
+        evt.scheduleProcessExternal(0, 0, false, new InitModelTarget(), null);
+        evt.resume(evt.secondsToNearestTick(2.5));
+        waitUntilPaused(evt);
+        assertEquals(1, model.sink.getNumberAdded());
+        assertEquals("SameTickGenerator_2", model.sink.getReceivedEntity().getName());
+
+        evt.resume(evt.secondsToNearestTick(3.5));
+        waitUntilPaused(evt);
+        assertEquals(2, model.sink.getNumberAdded());
+        assertEquals("SameTickGenerator_1", model.sink.getReceivedEntity().getName());
+    }
+
+    /**
+     * 按指定的分派方式运行40s，返回每个 Server 接收的实体数及 EntitySink 接收的实体数
+     */
+    private static long[] runDispatch(DispatchPolicy policy) throws InterruptedException {
+        EventManager evt = newEventManager();
+
+        EntityGenerator generator = new EntityGenerator();
+        generator.setName("DispatchGenerator" + policy);
+        Queue queue = new Queue();
+        queue.setName("DispatchQueue" + policy);
+        queue.setDispatchPolicy(policy);
+        EntitySink sink = new EntitySink();
+        sink.setName("DispatchSink" + policy);
+        generator.setNextComponent(queue);
+
+        Server[] servers = new Server[4];
+        for (int i = 0; i < servers.length; i++) {
+            servers[i] = new Server();
+            servers[i].setName("DispatchServer" + policy + i);
+            servers[i].setWaitQueue(queue);
+            servers[i].setServiceTime(2.5);
+            servers[i].setNextComponent(sink);
+        }
+
+        evt.scheduleProcessExternal(0, 0, false, new InitModelTarget(), null);
+        evt.resume(evt.secondsToNearestTick(40));
+        waitUntilPaused(evt);
+
+        long[] ret = new long[5];
+        for (int i = 0; i < servers.length; i++) {
+            ret[i] = servers[i].getNumberAdded();
+        }
+        ret[4] = sink.getNumberAdded();
+        return ret;
+    }
+
+    /**
+     * 测试多通道服务：一个 MultiServer(3个服务台) 与3个 Server 共用一个队列的结果相同
+     * 即： EntityGenerator(实体产生间隔1s) -> Queue1(定向分派) -> MultiServer1(服务时间2.5s，3个服务台) -> EntitySink
+     * 同时最多有3个实体在服务，平均利用率约为 2.5/3；20s 时将服务台数目改为5，本次运行仍使用3个服务台
+     */
+    @Test
+    public void test_multiServer_noError() throws InterruptedException {
+        EventManager evt = newEventManager();
+
+        EntityGenerator generator = new EntityGenerator();
+        generator.setName("MultiGenerator");
+        Queue queue = new Queue();
+        queue.setName("MultiQueue");
+        MultiServer server = new MultiServer();
+        server.setName("MultiServer");
+        EntitySink sink = new EntitySink();
+        sink.setName("MultiSink");
+
+        generator.setNextComponent(queue);
+        queue.setDispatchPolicy(DispatchPolicy.FirstIdle);
+        server.setWaitQueue(queue);
+        server.setCapacity(3);
+        server.setServiceTime(2.5);
+        server.setNextComponent(sink);
+        // 尚未初始化时利用率为0
+        assertEquals(0.0, server.getSlotUtilisation(0, 0), 0.0);
+        assertEquals(0.0, server.getAverageUtilisation(0), 0.0);
+
+        evt.scheduleProcessExternal(0, 0, false, new InitModelTarget(), null);
+        // 运行期间修改服务台数目，到下一次初始化才生效
+        evt.scheduleProcessExternal(evt.secondsToNearestTick(20), 0, false, new ProcessTarget() {
+            @Override
+            public void process() {
+                server.setCapacity(5);
+            }
+
+            @Override
+            public String getDescription() {
+                return "MultiServer.setCapacity";
+            }
+        }, null);
+        evt.resume(evt.secondsToNearestTick(40));
+        waitUntilPaused(evt);
+
+        // 运行 runDispatch 会重新初始化所有实体，需先检查利用率
+        assertEquals(0, queue.getCount());
+        assertEquals(2.5 / 3, server.getAverageUtilisation(evt.getTicks()), 0.03);
+        // 任一服务台在工作的时间比例接近1，DesSim 报告的是各服务台的平均利用率
+        assertTrue(server.getUtilisation(evt.getTicks()) > 0.95);
+        assertTrue(server.getSlotUtilisation(0, evt.getTicks()) >= server.getSlotUtilisation(2, evt.getTicks()));
+
+        long[] servers = runDispatch(DispatchPolicy.FirstIdle);
+        log.debug("multi server: {}, servers: {}", sink.getNumberAdded(), servers[4]);
+        assertEquals(servers[4], sink.getNumberAdded());
+    }
+
+    /**
+     * 测试批次的组装与拆分
+     * 即： EntityGenerator(实体产生间隔1s，共10个) -> Batch(每批4个，最长等待3.5s) -> Queue1 -> Server1(0.5s) -> Unbatch -> EntitySink
+     * 前两个批次凑满4个实体，最后一个批次在11.5s超时发出2个实体
+     */
+    @Test
+    public void test_batchUnbatch_noError() throws InterruptedException {
+        EventManager evt = newEventManager();
+
+        EntityGenerator generator = new EntityGenerator();
+        generator.setName("BatchGenerator");
+        generator.setMaxNumber(10);
+        Batch batch = new Batch("BatchBatch");
+        Queue queue = new Queue();
+        queue.setName("BatchQueue");
+        Server server = new Server();
+        server.setName("BatchServer");
+        Unbatch unbatch = new Unbatch("BatchUnbatch");
+        EntitySink sink = new EntitySink();
+        sink.setName("BatchSink");
+
+        generator.setNextComponent(batch);
+        batch.setBatchSize(4);
+        batch.setMaxWaitTime(3.5);
+        batch.setNextComponent(queue);
+        server.setWaitQueue(queue);
+        server.setServiceTime(0.5);
+        server.setNextComponent(unbatch);
+        unbatch.setNextComponent(sink);
+
+        evt.scheduleProcessExternal(0, 0, false, new InitModelTarget(), null);
+        evt.resume(evt.secondsToNearestTick(11.2));
+        waitUntilPaused(evt);
+        assertEquals(2, batch.getNumberProcessed());
+        assertEquals(2, batch.getWaitingCount());
+        assertEquals(8, sink.getNumberAdded());
+
+        evt.resume(evt.secondsToNearestTick(20));
+        waitUntilPaused(evt);
+        assertEquals(3, batch.getNumberProcessed());
+        assertEquals(0, batch.getWaitingCount());
+        assertEquals(3, server.getNumberProcessed());
+        assertEquals(3, unbatch.getNumberAdded());
+        assertEquals(10, sink.getNumberAdded());
+    }
+
+    /**
+     * 测试运行期间修改批次大小，到下一次初始化才生效
+     * 即： EntityGenerator(实体产生间隔1s，共12个) -> Batch(每批4个) -> EntitySink
+     * 2.5s 时将批次大小改为6，6.5s 时改为2，本次运行仍按每批4个实体发出3个批次
+     */
+    @Test
+    public void test_batchSizeChange_noError() throws InterruptedException {
+        EventManager evt = newEventManager();
+
+        EntityGenerator generator = new EntityGenerator();
+        generator.setName("BatchSizeGenerator");
+        generator.setMaxNumber(12);
+        Batch batch = new Batch("BatchSizeBatch");
+        EntitySink sink = new EntitySink();
+        sink.setName("BatchSizeSink");
+
+        generator.setNextComponent(batch);
+        batch.setBatchSize(4);
+        batch.setNextComponent(sink);
+
+        evt.scheduleProcessExternal(0, 0, false, new InitModelTarget(), null);
+        scheduleBatchSize(evt, batch, 2.5, 6);
+        scheduleBatchSize(evt, batch, 6.5, 2);
+        evt.resume(evt.secondsToNearestTick(20));
+        waitUntilPaused(evt);
+
+        assertEquals(3, batch.getNumberProcessed());
+        assertEquals(0, batch.getWaitingCount());
+        assertEquals(3, sink.getNumberAdded());
+        assertEquals(4, ((BatchEntity) sink.getReceivedEntity()).getMemberCount());
+    }
+
+    /**
+     * 在指定时刻修改批次大小
+     */
+    private static void scheduleBatchSize(EventManager evt, Batch batch, double secs, int size) {
+        evt.scheduleProcessExternal(evt.secondsToNearestTick(secs), 0, false, new ProcessTarget() {
+            @Override
+            public void process() {
+                batch.setBatchSize(size);
+            }
+
+            @Override
+            public String getDescription() {
+                return batch.getName() + ".setBatchSize";
+            }
+        }, null);
+    }
+
+    /**
+     * 测试固定延迟的传送带
+     * 即： EntityGenerator(实体产生间隔0.5s，共20个) -> Delay(3s) -> EntitySink
+     * 运行到5.2s时，在0~2s到达的5个实体已经离开，之后到达的6个实体仍在途中
+     */
+    @Test
+    public void test_delay_noError() throws InterruptedException {
+        EventManager evt = newEventManager();
+
+        EntityGenerator generator = new EntityGenerator();
+        generator.setName("DelayGenerator");
+        generator.setInterArrivalTime(0.5);
+        generator.setMaxNumber(20);
+        Delay delay = new Delay("DelayDelay");
+        EntitySink sink = new EntitySink();
+        sink.setName("DelaySink");
+
+        generator.setNextComponent(delay);
+        delay.setDuration(3);
+        delay.setNextComponent(sink);
+
+        evt.scheduleProcessExternal(0, 0, false, new InitModelTarget(), null);
+        evt.resume(evt.secondsToNearestTick(5.2));
+        waitUntilPaused(evt);
+        assertEquals(5, sink.getNumberAdded());
+        assertEquals(6, delay.getCount());
+
+        evt.resume(evt.secondsToNearestTick(20));
+        waitUntilPaused(evt);
+        assertEquals(20, sink.getNumberAdded());
+        assertEquals(0, delay.getCount());
+    }
+
+    /**
+     * 测试按类别和轮流方式选择下游组件
+     * 即： EntityGenerator(共30个) -> Assign(全部为 red) -> Branch1(red 传给1号) -> [EntitySink1, Branch2(轮流) -> [EntitySink2, EntitySink3]]
+     */
+    @Test
+    public void test_branch_noError() throws InterruptedException {
+        EventManager evt = newEventManager();
+
+        EntityGenerator generator = new EntityGenerator();
+        generator.setName("BranchGenerator");
+        generator.setMaxNumber(30);
+        Assign assign = new Assign("BranchAssign");
+        Map<String, Integer> map = new HashMap<>();
+        map.put("red", 1);
+        assign.addAssignment(map);
+        Branch byCategory = new Branch("BranchCategory");
+        Branch roundRobin = new Branch("BranchRoundRobin");
+        EntitySink sink1 = new EntitySink("BranchSink1");
+        EntitySink sink2 = new EntitySink("BranchSink2");
+        EntitySink sink3 = new EntitySink("BranchSink3");
+
+        generator.setNextComponent(assign);
+        assign.setNextComponent(byCategory);
+        byCategory.setBranchPolicy(BranchPolicy.Category);
+        byCategory.addNextComponent(sink1);
+        byCategory.addNextComponent(roundRobin);
+        byCategory.setRoute("red", 1);
+        roundRobin.setBranchPolicy(BranchPolicy.RoundRobin);
+        roundRobin.addNextComponent(sink2);
+        roundRobin.addNextComponent(sink3);
+
+        evt.scheduleProcessExternal(0, 0, false, new InitModelTarget(), null);
+        evt.resume(evt.secondsToNearestTick(40));
+        waitUntilPaused(evt);
+        assertEquals(30, byCategory.getNumberProcessed());
+        assertEquals(0, sink1.getNumberAdded());
+        assertEquals(30, byCategory.getNumberRouted(1));
+        assertEquals(15, sink2.getNumberAdded());
+        assertEquals(15, sink3.getNumberAdded());
+    }
+
+    /**
+     * 测试按整数属性的值选择下游组件
+     * 即： EntityGenerator(共30个) -> 设置 lane 属性(依次为 1, 2, 0, 1, ...) -> Branch(1 传给1号，2 传给2号，其他传给0号) -> [EntitySink0..2]
+     */
+    @Test
+    public void test_branchByAttribute_noError() throws InterruptedException {
+        EventManager evt = newEventManager();
+
+        AttributeSchema schema = new AttributeSchema();
+        final int laneSlot = schema.longSlot("lane");
+        SimEntity prototype = new SimEntity(true);
+        prototype.setSchema(schema);
+        EntityGenerator generator = new EntityGenerator();
+        generator.setName("LaneGenerator");
+        generator.setMaxNumber(30);
+        generator.setPrototypeEntity(prototype);
+        LinkedComponent labeller = new LinkedComponent() {
+            @Override
+            public void addEntity(Entity entity) {
+                super.addEntity(entity);
+                ((SimEntity) entity).setLong(laneSlot, getNumberAdded() % 3);
+                sendToNextComponent(entity);
+            }
+        };
+        labeller.setName("LaneLabeller");
+        Branch branch = new Branch("LaneBranch");
+        EntitySink[] sinks = new EntitySink[3];
+
+        generator.setNextComponent(labeller);
+        labeller.setNextComponent(branch);
+        branch.setBranchPolicy(BranchPolicy.Attribute);
+        branch.setRouteAttribute("lane");
+        for (int i = 0; i < sinks.length; i++) {
+            sinks[i] = new EntitySink("LaneSink" + i);
+            branch.addNextComponent(sinks[i]);
+        }
+        branch.setRoute(1, 1);
+        branch.setRoute(2, 2);
+
+        evt.scheduleProcessExternal(0, 0, false, new InitModelTarget(), null);
+        evt.resume(evt.secondsToNearestTick(40));
+        waitUntilPaused(evt);
+        assertEquals(30, branch.getNumberProcessed());
+        for (int i = 0; i < sinks.length; i++) {
+            assertEquals(10, sinks[i].getNumberAdded());
+            assertEquals(10, branch.getNumberRouted(i));
+        }
+    }
+
+    /**
+     * 测试资源的占用与释放
+     * 即： EntityGenerator(实体产生间隔1s，共10个) -> Seize(资源容量2) -> Delay(3s) -> Release -> EntitySink
+     * 释放的资源直接交给等待的实体，第10个实体在13s得到资源，16s离开
+     */
+    @Test
+    public void test_seizeRelease_noError() throws InterruptedException {
+        EventManager evt = newEventManager();
+
+        EntityGenerator generator = new EntityGenerator();
+        generator.setName("ResourceGenerator");
+        generator.setMaxNumber(10);
+        Resource resource = new Resource("ResourceResource");
+        resource.setCapacity(2);
+        Seize seize = new Seize("ResourceSeize");
+        Delay delay = new Delay("ResourceDelay");
+        Release release = new Release("ResourceRelease");
+        EntitySink sink = new EntitySink("ResourceSink");
+
+        generator.setNextComponent(seize);
+        seize.setResource(resource);
+        seize.setNextComponent(delay);
+        delay.setDuration(3);
+        delay.setNextComponent(release);
+        release.setResource(resource);
+        release.setNextComponent(sink);
+
+        evt.scheduleProcessExternal(0, 0, false, new InitModelTarget(), null);
+        evt.resume(evt.secondsToNearestTick(5.5));
+        waitUntilPaused(evt);
+        assertEquals(2, sink.getNumberAdded());
+        assertEquals(2, resource.getUnitsInUse());
+        assertEquals(2, resource.getWaitingCount());
+        assertEquals(2, seize.getNumberInProgress());
+
+        evt.resume(evt.secondsToNearestTick(20));
+        waitUntilPaused(evt);
+        assertEquals(10, sink.getNumberAdded());
+        assertEquals(0, resource.getUnitsInUse());
+        assertEquals(0, resource.getWaitingCount());
+        assertEquals(1.5, resource.getAverageUnitsInUse(evt.getTicks()), 1e-6);
+    }
+
+    /**
+     * 测试 Server 按 Assign 分配的类别选择服务时间
+     * 即： EntityGenerator(实体产生间隔1s) -> Assign(全部为 red) -> Queue1 -> Server1(默认1s，red 为3s) -> EntitySink
+     * 运行到30s时约完成10个实体
+     */
+    @Test
+    public void test_categoryServiceTime_noError() throws InterruptedException {
+        EventManager evt = newEventManager();
+
+        EntityGenerator generator = new EntityGenerator();
+        generator.setName("CategoryGenerator");
+        Assign assign = new Assign("CategoryAssign");
+        Map<String, Integer> map = new HashMap<>();
+        map.put("red", 1);
+        assign.addAssignment(map);
+        Queue queue = new Queue();
+        queue.setName("CategoryQueue");
+        Server server = new Server();
+        server.setName("CategoryServer");
+        EntitySink sink = new EntitySink();
+        sink.setName("CategorySink");
+
+        generator.setNextComponent(assign);
+        assign.setNextComponent(queue);
+        server.setWaitQueue(queue);
+        server.setServiceTime(1);
+        server.setServiceTime("red", new ConstantDistribution(3));
+        server.setNextComponent(sink);
+
+        evt.scheduleProcessExternal(0, 0, false, new InitModelTarget(), null);
+        evt.resume(evt.secondsToNearestTick(30));
+        waitUntilPaused(evt);
+
+        log.debug("processed: {}", sink.getNumberAdded());
+        assertTrue(sink.getNumberAdded() >= 9 && sink.getNumberAdded() <= 10);
+        assertEquals(Assign.getCategoryId("red"), ((SimEntity) sink.getReceivedEntity()).getCategoryId());
+    }
+
+    /**
+     * 单服务台模型：EntityGenerator(实体产生间隔1s) -> Queue -> Server -> EntitySink
+     * 所有测试共享同一个实体集合，组件名称以 prefix 开头以免重名
+     */
+    private static class SingleServerModel {
+        final EntityGenerator generator;
+        final Queue queue;
+        final Server server;
+        final EntitySink sink;
+
+        SingleServerModel(String prefix, double serviceTime) {
+            generator = new EntityGenerator();
+            generator.setName(prefix + "Generator");
+            queue = new Queue();
+            queue.setName(prefix + "Queue");
+            server = new Server();
+            server.setName(prefix + "Server");
+            sink = new EntitySink();
+            sink.setName(prefix + "Sink");
+
+            generator.setInterArrivalTime(new ConstantDistribution(1));
+            generator.setNextComponent(queue);
+            server.setWaitQueue(queue);
+            server.setServiceTime(new ConstantDistribution(serviceTime));
+            server.setNextComponent(sink);
+        }
+    }
+
+    /**
+     * 等待事件管理器运行到暂停时刻，避免与后续测试共享的实体被并发初始化
+     * @param evt
+     * @throws InterruptedException
+     */
+    private static void waitUntilPaused(EventManager evt) throws InterruptedException {
+        while (evt.isRunning()) {
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * 是否有仿真线程正在执行事件：空闲的仿真线程在线程池中等待，被唤醒的线程在开始执行之前处于中断状态
+     * @return
+     */
+    private static boolean isAnyProcessActive() {
+        for (Thread each : Thread.getAllStackTraces().keySet()) {
+            if (!"cn.softeng.events.Process".equals(each.getClass().getName())) {
+                continue;
+            }
+            if (each.getState() != Thread.State.WAITING || each.isInterrupted()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 由 newEventManager() 创建的事件管理器
+     */
+    private static final List<EventManager> eventManagers = new ArrayList<>();
+
+    /**
+     * 等待之前创建的事件管理器都暂停后，创建新的事件管理器
+     * 所有测试共享同一个实体集合，其他测试的运行尚未暂停时初始化模型会与其并发访问实体
+     * 不是由该方法创建的事件管理器（例如其他测试类中的）通过仿真线程的状态判断是否仍在运行
+     * @return
+     * @throws InterruptedException
+     */
+    private static EventManager newEventManager() throws InterruptedException {
+        for (EventManager each : eventManagers) {
+            waitUntilPaused(each);
+        }
+        while (isAnyProcessActive()) {
+            Thread.sleep(1);
+        }
+        EventManager ret = new EventManager("DefaultEventManager");
+        eventManagers.add(ret);
+        return ret;
+    }
 }
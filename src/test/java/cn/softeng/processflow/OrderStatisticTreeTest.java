@@ -0,0 +1,43 @@
+package cn.softeng.processflow;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * OrderStatisticTree测试类，随机插入删除后与 TreeSet 比较排名和顺序
+ * @date: 10/18/2026 9:10 PM
+ */
+public class OrderStatisticTreeTest {
+
+    @Test
+    public void test_randomOperations_matchTreeSet() {
+        Random rnd = new Random(42);
+        OrderStatisticTree<Integer> tree = new OrderStatisticTree<>();
+        TreeSet<Integer> expected = new TreeSet<>();
+
+        for (int i = 0; i < 5000; i++) {
+            int key = rnd.nextInt(1000);
+            if (rnd.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), tree.remove(key));
+            } else {
+                assertEquals(expected.add(key), tree.add(key));
+            }
+        }
+
+        assertEquals(expected.size(), tree.size());
+        assertEquals(expected.first(), tree.first());
+        ArrayList<Integer> list = new ArrayList<>(expected);
+        for (int i = 0; i < list.size(); i++) {
+            assertEquals(list.get(i), tree.get(i));
+            assertEquals(i, tree.rank(list.get(i)));
+        }
+        assertEquals(-1, tree.rank(-1));
+        assertFalse(tree.remove(-1));
+    }
+}
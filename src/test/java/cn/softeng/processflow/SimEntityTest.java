@@ -0,0 +1,122 @@
+package cn.softeng.processflow;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * SimEntity测试类，主要测试按槽位保存的属性与 Map 视图是否一致
+ * @date: 10/18/2026 7:40 PM
+ */
+@Slf4j
+public class SimEntityTest {
+
+    /**
+     * 测试通过槽位写入的属性能否通过 Map 视图读取，反之亦然
+     */
+    @Test
+    public void test_slotsAndMapView_consistent() {
+        AttributeSchema schema = new AttributeSchema();
+        int count = schema.longSlot("count");
+        int weight = schema.doubleSlot("weight");
+        int color = schema.referenceSlot(Assign.COLOR);
+
+        SimEntity entity = new SimEntity(true);
+        entity.setSchema(schema);
+        entity.setInt(count, 3);
+        entity.setDouble(weight, 2.5);
+        entity.setRef(color, "red");
+
+        Map<String, Object> map = entity.getAttribute();
+        log.debug("{}", map);
+        assertEquals(3L, map.get("count"));
+        assertEquals(2.5, (Double) map.get("weight"), 0.0);
+        assertEquals("red", map.get(Assign.COLOR));
+        assertEquals(3, map.size());
+
+        map.put("count", 7);
+        map.put("owner", "server1");
+        assertEquals(7, entity.getInt(count));
+        assertEquals("server1", entity.getRef(schema.referenceSlot("owner")));
+
+        map.remove(Assign.COLOR);
+        assertNull(entity.getRef(color));
+        entity.clearAttributes();
+        assertEquals(0, map.size());
+    }
+
+    /**
+     * 测试实体池中有多种类型的实体时，取出与原型类型相同的实体，而不只检查最后归还的实体
+     */
+    @Test
+    public void test_entityPool_mixedClasses() {
+        SimEntityPool pool = new SimEntityPool();
+        SimEntity simEntity = new SimEntity(true);
+        BatchEntity batchEntity = new BatchEntity(true);
+        pool.release(simEntity);
+        pool.release(batchEntity);
+        assertEquals(2, pool.size());
+
+        assertSame(simEntity, pool.acquire(new SimEntity(true), "PoolMixed", 1));
+        assertSame(batchEntity, pool.acquire(new BatchEntity(true), "PoolMixed", 2));
+        assertEquals(2, pool.getHitCount());
+        assertEquals(0, pool.size());
+    }
+
+    /**
+     * 测试归还到实体池后再次取出的实体不保留上一次使用时的属性
+     */
+    @Test
+    public void test_pooledEntity_attributesCleared() {
+        AttributeSchema schema = new AttributeSchema();
+        int count = schema.longSlot("count");
+        int weight = schema.doubleSlot("weight");
+        int owner = schema.referenceSlot("owner");
+        SimEntity proto = new SimEntity(true);
+        proto.setSchema(schema);
+
+        SimEntityPool pool = new SimEntityPool();
+        SimEntity entity = (SimEntity) pool.acquire(proto, "PoolClear", 1);
+        entity.setLong(count, 42);
+        entity.setDouble(weight, 1.5);
+        entity.setRef(owner, "server1");
+        entity.setCategoryId(3);
+        pool.release(entity);
+
+        SimEntity reused = (SimEntity) pool.acquire(proto, "PoolClear", 2);
+        assertSame(entity, reused);
+        assertEquals(0L, reused.getLong(count));
+        assertEquals(0.0, reused.getDouble(weight), 0.0);
+        assertNull(reused.getRef(owner));
+        assertEquals(-1, reused.getCategoryId());
+        assertTrue(reused.getAttribute().isEmpty());
+    }
+
+    /**
+     * 测试 Map 视图拒绝null值，写入整数槽位的 Integer 读取时为 Long
+     */
+    @Test
+    public void test_mapView_nullRejectedAndWidened() {
+        AttributeSchema schema = new AttributeSchema();
+        schema.longSlot("count");
+        SimEntity entity = new SimEntity(true);
+        entity.setSchema(schema);
+        Map<String, Object> map = entity.getAttribute();
+
+        map.put("count", 5);
+        assertEquals(Long.valueOf(5), map.get("count"));
+        try {
+            map.put("count", null);
+            fail("null value should be rejected");
+        } catch (IllegalArgumentException e) {
+            assertEquals(Long.valueOf(5), map.get("count"));
+        }
+    }
+}
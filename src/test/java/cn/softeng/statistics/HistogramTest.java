@@ -0,0 +1,35 @@
+package cn.softeng.statistics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Histogram测试类，主要测试分位数估计值的误差是否在 1/32 以内
+ * @date: 10/18/2026 9:50 PM
+ */
+public class HistogramTest {
+
+    @Test
+    public void test_percentiles_withinRelativeError() {
+        Histogram histogram = new Histogram();
+        for (long i = 1; i <= 100000; i++) {
+            histogram.record(i * 1000);
+        }
+
+        assertEquals(100000, histogram.getCount());
+        assertEquals(1000, histogram.getMin());
+        assertEquals(100000000, histogram.getMax());
+        assertEquals(50000500.0, histogram.getMean(), 1e-3);
+        for (double p : new double[] {1, 25, 50, 90, 99, 99.9}) {
+            double expected = p / 100.0 * 100000 * 1000;
+            assertEquals(expected, histogram.getPercentile(p), expected / 32);
+        }
+        assertEquals(100000000, histogram.getPercentile(100));
+
+        histogram.clear();
+        histogram.record(7);
+        assertEquals(7, histogram.getPercentile(50));
+        assertEquals(7, histogram.getMin());
+    }
+}
@@ -0,0 +1,217 @@
+package cn.softeng.statistics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * StatisticsStore测试类，主要测试列式存储的补齐与扩容是否正常
+ * @date: 10/18/2026 10:30 AM
+ */
+@Slf4j
+public class StatisticsStoreTest {
+
+    /**
+     * 测试只在变化时记录的序列，读取时是否沿用上一次的值
+     */
+    @Test
+    public void test_recordOnChange_carryForward() {
+        StatisticsStore store = new StatisticsStore();
+        TimeSeries series = store.createSeries("Server1.NumberAdded");
+
+        store.addTimePoint(0);
+        series.record(0, 1);
+        store.addTimePoint(5);
+        store.addTimePoint(7);
+        series.record(7, 3);
+        store.addTimePoint(7);
+        store.addTimePoint(10);
+
+        List<Double> times = store.getTimeList();
+        List<Long> values = series.getValueList();
+        log.debug("{}", times);
+        log.debug("{}", values);
+
+        assertEquals(4, times.size());
+        assertEquals(4, values.size());
+        assertEquals(Long.valueOf(1), values.get(1));
+        assertEquals(Long.valueOf(3), values.get(2));
+        assertEquals(Long.valueOf(3), values.get(3));
+    }
+
+    /**
+     * 测试数据超过一个数据块后，读写是否正常
+     */
+    @Test
+    public void test_growAcrossChunks_noError() {
+        StatisticsStore store = new StatisticsStore();
+        TimeSeries series = store.createSeries("Queue1.NumberInProgress");
+        int n = LongColumn.CHUNK_SIZE * 20 + 3;
+        for (int i = 0; i < n; i++) {
+            store.addTimePoint(i);
+            if (i % 3 == 0) {
+                series.record(i, i);
+            }
+        }
+        assertEquals(n, series.size());
+        assertEquals((n - 1) / 3 * 3, series.get(n - 1));
+        assertEquals(3000.0, store.getTime(3000), 0.0);
+
+        store.clear();
+        assertEquals(0, store.size());
+        assertEquals(0, series.getValueList().size());
+    }
+
+    /**
+     * 测试 ChangeOnly 策略只在数据变化时记录
+     */
+    @Test
+    public void test_changeOnly_skipUnchanged() {
+        StatisticsStore store = new StatisticsStore();
+        TimeSeries series = store.createSeries("Queue1.NumberInProgress", SamplingPolicy.CHANGE_ONLY);
+        series.record(0, 0);
+        series.record(1, 1);
+        series.record(2, 1);
+        series.record(3, 0);
+        series.record(3, 2);
+
+        log.debug("{} -> {}", series.getTimeList(), series.getValueList());
+        assertEquals(3, series.size());
+        assertEquals(3.0, series.getTime(2), 0.0);
+        assertEquals(2, series.get(2));
+
+        // 同一时间点改回前一个值时，不留下两个相同的连续数据点
+        series.record(4, 5);
+        series.record(4, 2);
+        assertEquals(3, series.size());
+        series.record(5, 2);
+        assertEquals(3, series.size());
+    }
+
+    /**
+     * 测试 Decimated 策略的数据点数有上限，并保留最小值和最大值
+     */
+    @Test
+    public void test_decimated_boundedAndKeepsExtremes() {
+        StatisticsStore store = new StatisticsStore();
+        TimeSeries series = store.createSeries("Server1.NumberInProgress", SamplingPolicy.decimated(64));
+        for (int i = 0; i < 100000; i++) {
+            long val = (i == 4242) ? 1000 : (i == 77777 ? -5 : i % 10);
+            series.record(i, val);
+        }
+        log.debug("{} -> {}", series.getTimeList(), series.getValueList());
+        assertTrue(series.size() <= 66);
+
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        double prev = -1;
+        for (int i = 0; i < series.size(); i++) {
+            min = Math.min(min, series.get(i));
+            max = Math.max(max, series.get(i));
+            assertTrue(series.getTime(i) > prev);
+            prev = series.getTime(i);
+        }
+        assertEquals(-5, min);
+        assertEquals(1000, max);
+    }
+
+    /**
+     * 测试流式写出：不保留数据时内存中没有数据，文件中只包含值发生变化的行
+     */
+    @Test
+    public void test_writer_streamsChangedValues() throws IOException {
+        Path path = Files.createTempFile("statistics", ".csv");
+        StatisticsStore store = new StatisticsStore();
+        StatisticsWriter writer = new StatisticsWriter(path);
+        store.setWriter(writer);
+        store.setRetainData(false);
+        TimeSeries series = store.createSeries("Queue1.NumberInProgress");
+
+        int n = 10000;
+        for (int i = 0; i < n; i++) {
+            store.addTimePoint(i);
+            series.record(i, i / 2);
+        }
+        writer.close();
+
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        Files.delete(path);
+        assertEquals(0, store.size());
+        assertEquals(0, series.size());
+        assertEquals("time,series,value", lines.get(0));
+        assertEquals(1 + n / 2, lines.size());
+        assertEquals("2.0,Queue1.NumberInProgress,1", lines.get(2));
+    }
+
+    /**
+     * 测试序列名称包含逗号、双引号或换行时，按 RFC 4180 写出
+     */
+    @Test
+    public void test_writer_quotesSeriesNames() throws IOException {
+        Path path = Files.createTempFile("statistics", ".csv");
+        StatisticsStore store = new StatisticsStore();
+        StatisticsWriter writer = new StatisticsWriter(path);
+        store.setWriter(writer);
+        store.addTimePoint(0);
+        store.createSeries("Queue,1.NumberAdded").record(0, 1);
+        store.createSeries("Queue \"A\".NumberAdded").record(0, 2);
+        store.createSeries("Queue\n2.NumberAdded").record(0, 3);
+        writer.close();
+
+        String text = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        Files.delete(path);
+        assertEquals("time,series,value\n"
+                + "0.0,\"Queue,1.NumberAdded\",1\n"
+                + "0.0,\"Queue \"\"A\"\".NumberAdded\",2\n"
+                + "0.0,\"Queue\n2.NumberAdded\",3\n", text);
+    }
+
+    /**
+     * 测试移除的序列不再随仓库清空
+     */
+    @Test
+    public void test_removeSeries_notCleared() {
+        StatisticsStore store = new StatisticsStore();
+        TimeSeries kept = store.createSeries("Server1.NumberAdded", SamplingPolicy.CHANGE_ONLY);
+        TimeSeries removed = store.createSeries("Server1.NumberProcessed", SamplingPolicy.CHANGE_ONLY);
+        kept.record(0, 1);
+        removed.record(0, 1);
+
+        store.removeSeries(removed);
+        store.clear();
+        assertEquals(0, kept.size());
+        assertEquals(1, removed.size());
+    }
+
+    /**
+     * 测试运行期间重新开始保留数据时，补记各序列最近的值，而不是沿用不保留之前的旧值
+     */
+    @Test
+    public void test_resumeRetention_recordsLatestValue() {
+        StatisticsStore store = new StatisticsStore();
+        TimeSeries series = store.createSeries("Server1.NumberProcessed");
+        store.addTimePoint(0);
+        series.record(0, 1);
+
+        store.setRetainData(false);
+        store.addTimePoint(1);
+        series.record(1, 5);
+
+        store.setRetainData(true);
+        store.addTimePoint(2);
+        store.addTimePoint(3);
+
+        assertEquals(3, series.size());
+        assertEquals(2.0, series.getTime(1), 0.0);
+        assertEquals(5, series.get(1));
+        assertEquals(5, series.get(2));
+    }
+}